@@ -0,0 +1,271 @@
+package application.bench;
+
+import java.util.Random;
+
+import application.astar.AStarCell;
+import application.astar.AStarGrid;
+import application.astar.BitGrid;
+import application.astar.PackedGrid;
+
+/**
+ * Generated square map for the benchmarks: traversability per cell index (row * cols + col), start and goal.
+ * The same family, size and seed always give the same map, so the results of different runs can be compared.
+ *
+ * Families:
+ * open = no obstacles,
+ * random10, random20, random25 = obstacles with that percentage at random cells, below the density at which the map falls apart,
+ * maze = perfect maze with corridors and walls of one cell,
+ * rooms = rooms separated by walls with a door per wall,
+ * unreachable = open field with the goal walled in, the search has to expand every reachable cell.
+ */
+public class BenchMap {
+
+	public static final String[] FAMILIES = { "open", "random10", "random20", "random25", "maze", "rooms", "unreachable" };
+
+	/**
+	 * Side length of a room of the rooms family.
+	 */
+	static final int ROOM_SIZE = 16;
+
+	int size;
+	boolean[] traversable;
+	int start;
+	int goal;
+
+	BenchMap( int size) {
+		this.size = size;
+		this.traversable = new boolean[ size * size];
+	}
+
+	public static BenchMap generate( String family, int size, long seed) {
+
+		Random random = new Random( seed);
+
+		BenchMap map = new BenchMap( size);
+
+		map.start = map.index( 0, 0);
+		map.goal = map.index( size - 1, size - 1);
+
+		switch( family) {
+		case "open":
+			map.fill( true);
+			break;
+		case "random10":
+			map.fillRandom( random, 0.1);
+			break;
+		case "random20":
+			map.fillRandom( random, 0.2);
+			break;
+		case "random25":
+			map.fillRandom( random, 0.25);
+			break;
+		case "maze":
+			map.fillMaze( random);
+			break;
+		case "rooms":
+			map.fillRooms( random);
+			break;
+		case "unreachable":
+			map.fillUnreachable();
+			break;
+		default:
+			throw new IllegalArgumentException( "Unknown map family: " + family);
+		}
+
+		return map;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public int getGoal() {
+		return goal;
+	}
+
+	public boolean isTraversable( int index) {
+		return traversable[index];
+	}
+
+	int index( int col, int row) {
+		return row * size + col;
+	}
+
+	private void fill( boolean isTraversable) {
+		for( int i = 0; i < traversable.length; i++) {
+			traversable[i] = isTraversable;
+		}
+	}
+
+	private void fillRandom( Random random, double density) {
+
+		for( int i = 0; i < traversable.length; i++) {
+			traversable[i] = random.nextDouble() >= density;
+		}
+
+		// keep start and goal from being walled in, unreachable goals are a family of their own
+		for( int row = 0; row < 3; row++) {
+			for( int col = 0; col < 3; col++) {
+				traversable[ index( col, row)] = true;
+				traversable[ index( size - 1 - col, size - 1 - row)] = true;
+			}
+		}
+	}
+
+	/**
+	 * Depth-first maze on the cells with odd coordinates, the cells between them are the walls or the passages.
+	 */
+	private void fillMaze( Random random) {
+
+		fill( false);
+
+		int cells = (size - 1) / 2;
+
+		int[] stack = new int[ cells * cells];
+		int depth = 0;
+
+		int[] cols = { 0, 1, 0, -1 };
+		int[] rows = { -1, 0, 1, 0 };
+
+		traversable[ index( 1, 1)] = true;
+		stack[depth++] = 0;
+
+		while( depth > 0) {
+
+			int cell = stack[depth - 1];
+			int col = cell % cells;
+			int row = cell / cells;
+
+			// unvisited neighbors, then a random one of them
+			int candidates = 0;
+			int[] directions = new int[4];
+
+			for( int direction = 0; direction < 4; direction++) {
+
+				int neighborCol = col + cols[direction];
+				int neighborRow = row + rows[direction];
+
+				if( neighborCol >= 0 && neighborCol < cells && neighborRow >= 0 && neighborRow < cells && !traversable[ index( neighborCol * 2 + 1, neighborRow * 2 + 1)]) {
+					directions[candidates++] = direction;
+				}
+			}
+
+			if( candidates == 0) {
+				depth--;
+				continue;
+			}
+
+			int direction = directions[ random.nextInt( candidates)];
+
+			int neighborCol = col + cols[direction];
+			int neighborRow = row + rows[direction];
+
+			// open the wall and the neighbor
+			traversable[ index( col * 2 + 1 + cols[direction], row * 2 + 1 + rows[direction])] = true;
+			traversable[ index( neighborCol * 2 + 1, neighborRow * 2 + 1)] = true;
+
+			stack[depth++] = neighborRow * cells + neighborCol;
+		}
+
+		start = index( 1, 1);
+		goal = index( cells * 2 - 1, cells * 2 - 1);
+	}
+
+	/**
+	 * Walls every {@link #ROOM_SIZE} cells, each wall between two rooms has a door of two cells at a random position.
+	 */
+	private void fillRooms( Random random) {
+
+		fill( true);
+
+		for( int wall = ROOM_SIZE; wall < size; wall += ROOM_SIZE) {
+			for( int i = 0; i < size; i++) {
+				traversable[ index( wall, i)] = false;
+				traversable[ index( i, wall)] = false;
+			}
+		}
+
+		for( int wall = ROOM_SIZE; wall < size; wall += ROOM_SIZE) {
+			for( int room = 0; room < size; room += ROOM_SIZE) {
+
+				int roomSize = Math.min( ROOM_SIZE, size - room);
+
+				if( roomSize < 3) {
+					continue;
+				}
+
+				int door = room + 1 + random.nextInt( roomSize - 2);
+
+				traversable[ index( wall, door)] = true;
+				traversable[ index( wall, Math.min( door + 1, size - 1))] = true;
+
+				door = room + 1 + random.nextInt( roomSize - 2);
+
+				traversable[ index( door, wall)] = true;
+				traversable[ index( Math.min( door + 1, size - 1), wall)] = true;
+			}
+		}
+
+		traversable[start] = true;
+		traversable[goal] = true;
+	}
+
+	/**
+	 * Open field with a wall around the goal at a distance of two cells.
+	 */
+	private void fillUnreachable() {
+
+		fill( true);
+
+		for( int i = size - 3; i < size; i++) {
+			traversable[ index( size - 3, i)] = false;
+			traversable[ index( i, size - 3)] = false;
+		}
+	}
+
+	public PackedGrid toPackedGrid() {
+
+		PackedGrid grid = new PackedGrid( size, size);
+
+		for( int row = 0; row < size; row++) {
+			for( int col = 0; col < size; col++) {
+				grid.setTraversable( col, row, traversable[ index( col, row)]);
+			}
+		}
+
+		return grid;
+	}
+
+	public BitGrid toBitGrid() {
+
+		BitGrid grid = new BitGrid( size, size);
+
+		for( int row = 0; row < size; row++) {
+			for( int col = 0; col < size; col++) {
+				grid.setTraversable( col, row, traversable[ index( col, row)]);
+			}
+		}
+
+		return grid;
+	}
+
+	/**
+	 * Grid of the object based {@link application.astar.AStarAlgorithm}, one {@link AStarCell} per cell.
+	 */
+	public AStarGrid<Object> toAStarGrid() {
+
+		AStarGrid<Object> grid = new AStarGrid<>( size, size);
+
+		for( int row = 0; row < size; row++) {
+			for( int col = 0; col < size; col++) {
+				grid.setCell( null, col, row, traversable[ index( col, row)]);
+			}
+		}
+
+		return grid;
+	}
+}
@@ -0,0 +1,168 @@
+package application.bench;
+
+import java.util.Random;
+
+import application.astar.DStarLiteAlgorithm;
+import application.astar.NeighborMask;
+import application.astar.PackedGrid;
+import application.astar.PrimitiveAStarAlgorithm;
+import application.astar.SearchContext;
+
+/**
+ * Regression check of the replanning of {@link DStarLiteAlgorithm} against a search from scratch.
+ *
+ * Per map the goal stays fixed while the start moves along the path or jumps to another cell and random cells are opened or blocked
+ * between the queries. After every replan the path must connect start and goal with moves of the grid, have the length of the path of
+ * {@link PrimitiveAStarAlgorithm} on the same grid, and its length must be the {@link DStarLiteAlgorithm#getPathCost() path cost}.
+ * A missing path is only correct if the search from scratch doesn't find one either.
+ *
+ * Usage: ReplanCheck [maps per family] [queries per map]
+ *
+ * The exit status is 1 if a result differs.
+ */
+public class ReplanCheck {
+
+	static final String[] FAMILIES = { "open", "random20", "random25", "maze", "rooms"};
+
+	static final int SIZE = 64;
+
+	/**
+	 * Difference of two path lengths which counts as equal, the engines add float step costs.
+	 */
+	static final double TOLERANCE = 1e-3;
+
+	static final double SQRT2 = Math.sqrt( 2);
+
+	PrimitiveAStarAlgorithm reference = new PrimitiveAStarAlgorithm();
+	SearchContext context = new SearchContext( 0);
+
+	int queries;
+	int failures;
+
+	public static void main( String[] args) {
+
+		int maps = args.length > 0 ? Integer.parseInt( args[0]) : 20;
+		int queriesPerMap = args.length > 1 ? Integer.parseInt( args[1]) : 50;
+
+		ReplanCheck check = new ReplanCheck();
+
+		for( boolean allowDiagonals: new boolean[] { true, false}) {
+			for( String family: FAMILIES) {
+				for( int seed = 0; seed < maps; seed++) {
+					check.run( BenchMap.generate( family, SIZE, seed), seed, allowDiagonals, queriesPerMap);
+				}
+			}
+		}
+
+		System.out.println( check.queries + " queries, " + check.failures + " failures");
+
+		System.exit( check.failures == 0 ? 0 : 1);
+	}
+
+	void run( BenchMap map, long seed, boolean allowDiagonals, int queriesPerMap) {
+
+		Random random = new Random( seed);
+
+		PackedGrid grid = map.toPackedGrid();
+		DStarLiteAlgorithm planner = new DStarLiteAlgorithm( grid, allowDiagonals);
+
+		int start = map.getStart();
+		int goal = map.getGoal();
+
+		for( int query = 0; query < queriesPerMap; query++) {
+
+			int[] path = planner.findPath( start, goal);
+			int[] expected = reference.findPath( grid, context, start, goal, allowDiagonals);
+
+			queries++;
+
+			String error = compare( grid, path, expected, start, goal, planner.getPathCost());
+
+			if( error != null) {
+				failures++;
+				System.out.println( "seed " + seed + ", diagonals " + allowDiagonals + ", query " + query + ": " + error);
+			}
+
+			// move the start a few cells along the path or to a random traversable cell
+			if( path.length > 1 && random.nextBoolean()) {
+				start = path[ Math.max( 0, path.length - 2 - random.nextInt( 5))];
+			} else {
+				int cell = random.nextInt( grid.getCellCount());
+				if( grid.isTraversable( cell)) {
+					start = cell;
+				}
+			}
+
+			// open and block random cells, the start and the goal stay as they are
+			for( int change = random.nextInt( 6); change > 0; change--) {
+
+				int cell = random.nextInt( grid.getCellCount());
+
+				if( cell != start && cell != goal) {
+					planner.setTraversable( grid.col( cell), grid.row( cell), !grid.isTraversable( cell));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Description of the difference between the replanned and the expected path, null if there is none.
+	 */
+	private String compare( PackedGrid grid, int[] path, int[] expected, int start, int goal, double pathCost) {
+
+		if( path.length == 0 || expected.length == 0) {
+			return path.length == expected.length ? null : "path found " + (path.length > 0) + ", expected " + (expected.length > 0);
+		}
+
+		if( path[0] != goal || path[ path.length - 1] != start) {
+			return "path doesn't connect start and goal";
+		}
+
+		double length = length( grid, path);
+		double expectedLength = length( grid, expected);
+
+		if( Double.isNaN( length)) {
+			return "path contains a move which isn't allowed";
+		}
+
+		if( Math.abs( length - expectedLength) > TOLERANCE) {
+			return "length " + length + ", expected " + expectedLength;
+		}
+
+		if( Math.abs( length - pathCost) > TOLERANCE) {
+			return "length " + length + ", path cost " + pathCost;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Octile length of a path, NaN if it contains a step which isn't a move of the grid.
+	 */
+	private static double length( PackedGrid grid, int[] path) {
+
+		double length = 0;
+
+		for( int i = 1; i < path.length; i++) {
+
+			int from = path[i];
+			int to = path[i - 1];
+
+			int direction = -1;
+
+			for( int d = 0; d < 8; d++) {
+				if( grid.getNeighbor( from, d) == to && Math.abs( grid.col( from) - grid.col( to)) <= 1) {
+					direction = d;
+				}
+			}
+
+			if( direction == -1 || (grid.getNeighborMask( from, true) & (1 << direction)) == 0) {
+				return Double.NaN;
+			}
+
+			length += NeighborMask.isDiagonal( direction) ? SQRT2 : 1d;
+		}
+
+		return length;
+	}
+}
@@ -0,0 +1,155 @@
+package application.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.astar.AStarAlgorithm;
+import application.astar.AStarCell;
+import application.astar.AStarGrid;
+import application.astar.BidirectionalAStarAlgorithm;
+import application.astar.BitGrid;
+import application.astar.BucketAStarAlgorithm;
+import application.astar.HierarchicalPathFinder;
+import application.astar.JumpPointSearchAlgorithm;
+import application.astar.PackedGrid;
+import application.astar.PrimitiveAStarAlgorithm;
+import application.astar.SearchContext;
+import application.astar.TerrainAStarAlgorithm;
+
+/**
+ * One search from start to goal per operation, for every engine on every map family and size, see {@link BenchMap}.
+ * The grids and the preprocessing of the hierarchical search are created once per trial and aren't measured.
+ *
+ * Run with -prof gc to get the allocation rate, restrict the parameters with e. g. -p map=maze -p size=1024.
+ * The object grid of {@link AStarAlgorithm} needs about 1 GB of heap at 4096 x 4096.
+ */
+@State( Scope.Thread)
+@BenchmarkMode( { Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit( TimeUnit.MILLISECONDS)
+@Warmup( iterations = 3, time = 2)
+@Measurement( iterations = 5, time = 2)
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+
+	/**
+	 * Cluster size of the hierarchical search.
+	 */
+	static final int CLUSTER_SIZE = 16;
+
+	@Param( { "open", "random10", "random20", "random25", "maze", "rooms", "unreachable"})
+	String map;
+
+	@Param( { "64", "256", "1024", "4096"})
+	int size;
+
+	@Param( { "true", "false"})
+	boolean allowDiagonals;
+
+	int start;
+	int goal;
+
+	AStarGrid<Object> aStarGrid;
+	AStarCell<Object> aStarStart;
+	AStarCell<Object> aStarGoal;
+
+	PackedGrid packedGrid;
+	BitGrid bitGrid;
+
+	SearchContext context = new SearchContext( 0);
+
+	AStarAlgorithm aStar = new AStarAlgorithm();
+	AStarAlgorithm aStarWithoutSteps = new AStarAlgorithm();
+	PrimitiveAStarAlgorithm primitive = new PrimitiveAStarAlgorithm();
+	TerrainAStarAlgorithm terrain = new TerrainAStarAlgorithm();
+	BucketAStarAlgorithm bucket = new BucketAStarAlgorithm();
+	BidirectionalAStarAlgorithm bidirectional = new BidirectionalAStarAlgorithm();
+	JumpPointSearchAlgorithm jumpPoint = new JumpPointSearchAlgorithm();
+	HierarchicalPathFinder hierarchical;
+
+	@Setup( Level.Trial)
+	public void setup() {
+
+		BenchMap benchMap = BenchMap.generate( map, size, 42);
+
+		start = benchMap.getStart();
+		goal = benchMap.getGoal();
+
+		aStarGrid = benchMap.toAStarGrid();
+		aStarStart = aStarGrid.getCell( start);
+		aStarGoal = aStarGrid.getCell( goal);
+
+		packedGrid = benchMap.toPackedGrid();
+		bitGrid = benchMap.toBitGrid();
+
+		aStarWithoutSteps.setSnapshotEnabled( false);
+
+		hierarchical = new HierarchicalPathFinder( packedGrid, CLUSTER_SIZE, allowDiagonals);
+	}
+
+	/**
+	 * The search of the user interface, including the recording of the steps.
+	 */
+	@Benchmark
+	public List<AStarCell> aStar() {
+		return aStar.getPath( aStarGrid, aStarStart, aStarGoal, allowDiagonals);
+	}
+
+	@Benchmark
+	public List<AStarCell> aStarWithoutSteps() {
+		return aStarWithoutSteps.getPath( aStarGrid, aStarStart, aStarGoal, allowDiagonals);
+	}
+
+	@Benchmark
+	public int[] primitive() {
+		return primitive.findPath( packedGrid, context, start, goal, allowDiagonals);
+	}
+
+	/**
+	 * Same engine on the bit grid backend.
+	 */
+	@Benchmark
+	public int[] primitiveBitGrid() {
+		return primitive.findPath( bitGrid, context, start, goal, allowDiagonals);
+	}
+
+	@Benchmark
+	public int[] terrain() {
+		return terrain.findPath( packedGrid, context, start, goal, allowDiagonals);
+	}
+
+	@Benchmark
+	public int[] bucket() {
+		return bucket.findPath( packedGrid, context, start, goal, allowDiagonals);
+	}
+
+	@Benchmark
+	public int[] bidirectional() {
+		return bidirectional.findPath( packedGrid, context, start, goal, allowDiagonals);
+	}
+
+	/**
+	 * Jump point search on the bit grid, whose rows and columns it tests 64 cells at a time. Without diagonals it is the primitive search.
+	 */
+	@Benchmark
+	public int[] jumpPoint() {
+		return jumpPoint.findPath( bitGrid, context, start, goal, allowDiagonals);
+	}
+
+	@Benchmark
+	public int[] hierarchical() {
+		return hierarchical.findPath( packedGrid, context, start, goal, allowDiagonals);
+	}
+}
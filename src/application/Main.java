@@ -1,6 +1,9 @@
 package application;
 
+import java.text.NumberFormat;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javafx.application.Application;
 import javafx.beans.property.BooleanProperty;
@@ -13,8 +16,10 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -22,10 +27,13 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
 import javafx.scene.transform.Scale;
 import javafx.stage.Stage;
+import application.astar.SearchResult;
+import application.grid.CanvasGrid;
+import application.grid.CanvasPathService;
 import application.grid.Cell;
-import application.grid.CellMark;
 import application.grid.CellType;
 import application.grid.Grid;
+import application.grid.PathService;
 import application.grid.Wrapper;
 import application.input.MouseDragGestures;
 import application.input.MousePaintGestures;
@@ -40,6 +48,11 @@ public class Main extends Application {
 
 	Grid grid;
 
+	/**
+	 * Used instead of the grid if {@link Settings#CANVAS_RENDERER} is set.
+	 */
+	CanvasGrid canvasGrid;
+
 	BooleanProperty allowDiagonalsProperty = new SimpleBooleanProperty( true);
 	BooleanProperty stepViewProperty = new SimpleBooleanProperty( Settings.STEP_VIEW);
 	BooleanProperty showPathProperty = new SimpleBooleanProperty( true);
@@ -54,6 +67,17 @@ public class Main extends Application {
 	Cell endCell;
 
 	Wrapper<Cell> aStarWrapper = new Wrapper<Cell>();
+	
+	/**
+	 * Runs the searches in the background, so the UI doesn't freeze on large grids.
+	 */
+	PathService<Cell> pathService = new PathService<Cell>( aStarWrapper);
+
+	/**
+	 * Runs the searches on the canvas grid in the background, each limited by {@link Settings#CANVAS_SEARCH_TIME}.
+	 */
+	CanvasPathService canvasPathService;
+	SearchResult canvasResult;
 
 	Label status;
 	Slider stepSlider;
@@ -79,7 +103,11 @@ public class Main extends Application {
 			Button removeObstaclesButton = new Button("Remove all obstacles");
 			removeObstaclesButton.setOnAction(e -> {
 				
-				grid.setType( CellType.TRAVERSABLE);
+				if( canvasGrid != null) {
+					canvasGrid.setType( CellType.TRAVERSABLE);
+				} else {
+					grid.setType( CellType.TRAVERSABLE);
+				}
 				
 				if( autoPath) {
 					showPath();
@@ -90,17 +118,30 @@ public class Main extends Application {
 			Button fillObstaclesButton = new Button("Fill with obstacles");
 			fillObstaclesButton.setOnAction(e -> {
 				
-				grid.setType( CellType.OBSTACLE);
-				
 				// start and end mustn't be OBSTACLE
-				grid.getCell(startCell.getColumn(), startCell.getRow()).setType(CellType.TRAVERSABLE);
-				grid.getCell(endCell.getColumn(), endCell.getRow()).setType(CellType.TRAVERSABLE);
+				if( canvasGrid != null) {
+					canvasGrid.setType( CellType.OBSTACLE);
+					canvasGrid.setType( canvasGrid.getStartColumn(), canvasGrid.getStartRow(), CellType.TRAVERSABLE);
+					canvasGrid.setType( canvasGrid.getGoalColumn(), canvasGrid.getGoalRow(), CellType.TRAVERSABLE);
+				} else {
+					grid.setType( CellType.OBSTACLE);
+					grid.getCell(startCell.getColumn(), startCell.getRow()).setType(CellType.TRAVERSABLE);
+					grid.getCell(endCell.getColumn(), endCell.getRow()).setType(CellType.TRAVERSABLE);
+				}
 				
 				if( autoPath) {
 					showPath();
 				}
 			});
 
+			// cell type which is painted with the primary mouse button
+			ComboBox<CellType> paintTypeComboBox = new ComboBox<>();
+			paintTypeComboBox.getItems().addAll( CellType.OBSTACLE, CellType.ROAD, CellType.GRASS, CellType.SWAMP);
+			paintTypeComboBox.setValue( mousePaintGestures.getPaintType());
+			paintTypeComboBox.setOnAction(e -> {
+				mousePaintGestures.setPaintType( paintTypeComboBox.getValue());
+			});
+
 			// find path button
 			Button findPathButton = new Button("Find Path");
 			findPathButton.setOnAction(e -> {
@@ -128,10 +169,10 @@ public class Main extends Application {
 			CheckBox stepViewCheckBox = new CheckBox( "Step View");
 			stepViewCheckBox.selectedProperty().bindBidirectional(stepViewProperty);
 			
+			// the steps of the last search are kept, no need to search again
 			stepViewProperty.addListener((ChangeListener<Boolean>) (observable, oldValue, newValue) -> {
-				if( autoPath) {
-					showPath();
-				}
+				updateStepSlider();
+				showStep();
 			});
 			
 			// steps need information label
@@ -158,7 +199,7 @@ public class Main extends Application {
 			
 			toolbar.setAlignment(Pos.CENTER_LEFT);
 			
-			toolbar.getChildren().addAll( removeObstaclesButton, fillObstaclesButton, findPathButton, allowDiagonalsCheckBox, showPathCheckBox, stepViewCheckBox, stepSlider, stepLabel);
+			toolbar.getChildren().addAll( removeObstaclesButton, fillObstaclesButton, paintTypeComboBox, findPathButton, allowDiagonalsCheckBox, showPathCheckBox, stepViewCheckBox, stepSlider, stepLabel);
 
 			root.setTop(toolbar);
 
@@ -171,7 +212,7 @@ public class Main extends Application {
 			statusBar.getChildren().add( status);
 			
 			// info for the user
-			Label infoText = new Label("Left mouse button = draw obstacles, right mouse button = remove obstacles. Move start and end cells via dragging. Steps: top/left=g, top/right=h, center=f of A*");
+			Label infoText = new Label("Left mouse button = draw obstacles or the selected terrain, right mouse button = remove obstacles and terrain. Move start and end cells via dragging. Steps: top/left=g, top/right=h, center=f of A*");
 			infoText.setAlignment(Pos.CENTER_RIGHT);
 			infoText.setMaxWidth(Long.MAX_VALUE);
 			HBox.setHgrow(infoText, Priority.ALWAYS);
@@ -201,6 +242,11 @@ public class Main extends Application {
 			
 			primaryStage.show();
 			
+			if( Settings.CANVAS_RENDERER) {
+				createCanvasGrid( root);
+				return;
+			}
+			
 			// create grid; the dimensions depend on the content, that's why we draw it after the stage is shown 
 			// --------------------------------------------------------------------------------------------------------------
 			grid = new Grid( Settings.GRID_COLUMNS, Settings.GRID_ROWS, content.getBoundsInParent().getWidth(), content.getBoundsInParent().getHeight());
@@ -261,6 +307,38 @@ public class Main extends Application {
 		}
 	}
 	
+	/**
+	 * Large grid which is drawn on a canvas instead of the cell nodes. Scroll to zoom, drag with the middle mouse button to pan.
+	 */
+	private void createCanvasGrid( BorderPane root) {
+
+		canvasGrid = new CanvasGrid( Settings.CANVAS_GRID_COLUMNS, Settings.CANVAS_GRID_ROWS);
+
+		mousePaintGestures.makePaintable( canvasGrid);
+
+		mouseDragGestures = new MouseDragGestures( null);
+		mouseDragGestures.makeDraggable( canvasGrid);
+
+		canvasGrid.setStart( 0, 0);
+		canvasGrid.setGoal( Settings.CANVAS_GRID_COLUMNS - 1, Settings.CANVAS_GRID_ROWS - 1);
+
+		root.setCenter( canvasGrid);
+
+		canvasPathService = new CanvasPathService( canvasGrid, Settings.CANVAS_SEARCH_TIME * 1_000_000L);
+
+		// the steps of a canvas search aren't recorded, the step view shows the marks of the whole search
+		stepSlider.setDisable( true);
+
+		showPath();
+
+		// re-draw path after mouse has been released, but not after panning
+		canvasGrid.addEventFilter(MouseEvent.MOUSE_RELEASED, event -> {
+			if( autoPath && event.getButton() != MouseButton.MIDDLE) {
+				showPath();
+			}
+		});
+	}
+
 	/**
 	 * Show path automatically on mouse released if the autoPath boolean is set
 	 */
@@ -272,12 +350,27 @@ public class Main extends Application {
 		
 	};
 	
+	@Override
+	public void stop() {
+		pathService.shutdown();
+
+		if( canvasPathService != null) {
+			canvasPathService.shutdown();
+		}
+	}
+	
 	/**
 	 * Find the path, show the path and if requested also show the steps (open/closed marks) that lead to the path.
+	 * The path is searched in the background and shown when it has been found.
 	 */
 	public void showPath() {
+
+		if( canvasGrid != null) {
+			findCanvasPath();
+			return;
+		}
+
 		findPath( grid.getCell( startCell.getColumn(), startCell.getRow()), grid.getCell( endCell.getColumn(), endCell.getRow()));
-		showStep();
 	}
 
 	/**
@@ -314,38 +407,109 @@ public class Main extends Application {
 	 */
 	private void findPath(Cell startCell, Cell endCell) {
 
-		// stopwatch start
-		long startTime = System.nanoTime();
-		
-		// determine path via A* algorithm
-		List<Cell> path = aStarWrapper.findPath(grid, startCell, endCell, allowDiagonalsProperty.getValue());
+		// determine path via A* algorithm, a request for an unchanged grid and the same cells is ignored
+		pathService.request(grid, startCell, endCell, allowDiagonalsProperty.getValue(), path -> {
+			showResult( path);
+			showStep();
+		});
 
-		// stopwatch end & update status
-		long timeUsed = System.nanoTime() - startTime;
+	}
+	
+	/**
+	 * Search on the canvas grid in the background within the time limit, then show the path or the partial path and the status.
+	 */
+	private void findCanvasPath() {
 
-		String text = "Calc time: " + (timeUsed / 1_000_000d) + " ms";
+		canvasPathService.request( allowDiagonalsProperty.getValue(), result -> {
 
-		if (path != null) {
-			
-			text += " ... Cells in path: " + path.size();
-			
+			canvasResult = result;
+
+			status.setText( getStatusText( canvasResult, canvasResult.getPath().length));
+
+			paintCanvasPath();
+			showCanvasMarks();
+		});
+	}
+
+	private void paintCanvasPath() {
+
+		if( showPathProperty.getValue() && canvasResult != null) {
+			canvasGrid.setPath( canvasResult.getPath());
+		} else {
+			canvasGrid.removeHighlight();
 		}
-		// no valid path found
-		else {
-			
-			text += " ... Path not found!";
-			
-			System.err.println("Path not found!");
+	}
 
+	/**
+	 * Mark the open and closed cells of the last canvas search if the step view is on.
+	 * Only the cells of the previous and the new marks are changed.
+	 */
+	private void showCanvasMarks() {
+
+		if( !stepViewProperty.getValue() || canvasResult == null) {
+			canvasGrid.removeMarks();
+			return;
 		}
 
-		status.setText( text);
+		canvasGrid.setMarks( canvasPathService.getOpenCells(), canvasPathService.getClosedCells());
+	}
+
+	/**
+	 * Show the path of the last search and its statistics.
+	 */
+	private void showResult( List<Cell> path) {
+
+		// update status
+		SearchResult result = aStarWrapper.getResult();
+
+		status.setText( getStatusText( result, path.size()));
+		
+		// no valid path found
+		if( result.getStatus() == SearchResult.Status.NO_PATH) {
+			System.err.println("Path not found!");
+		}
 		
 		// paint the path
 		paintPath( path);
 		
 		// update step slider range
-		if( showSteps) {
+		updateStepSlider();
+
+	}
+	
+	/**
+	 * Time, work and outcome of a search for the status bar.
+	 */
+	private String getStatusText( SearchResult result, int pathLength) {
+
+		NumberFormat nf = NumberFormat.getInstance();
+		nf.setMaximumFractionDigits(2);
+
+		String text = "Time: " + nf.format( result.getNanos() / 1_000_000d) + " ms"
+				+ " ... Expanded: " + result.getExpansions()
+				+ " ... Generated: " + result.getGenerated()
+				+ " ... Open peak: " + result.getOpenPeak()
+				+ " ... Reopened: " + result.getReopenings()
+				+ " ... Heuristic evaluations: " + result.getHeuristicEvaluations();
+
+		switch( result.getStatus()) {
+		case FOUND:
+			text += " ... Cost: " + nf.format( result.getCost()) + " ... Cells in path: " + pathLength;
+			break;
+		case NO_PATH:
+			text += " ... Path not found!";
+			break;
+		default:
+			text += " ... Limit reached, partial path: " + pathLength;
+			break;
+		}
+
+		return text;
+	}
+	
+	private void updateStepSlider() {
+		
+		if( showSteps && canvasGrid == null) {
 			int count = aStarWrapper.getSnapshotCount();
 			stepSlider.setMax(count);
 			
@@ -355,33 +519,34 @@ public class Main extends Application {
 				stepSlider.setValue(0);
 			}
 		}	
-
+		
 	}
 	
 	private void repaintPath() {
+
+		if( canvasGrid != null) {
+			paintCanvasPath();
+			return;
+		}
+
 		paintPath( aStarWrapper.getPath());
 	}
 	
 	private void paintPath( List<Cell> path) {
 		
-		// remove existing highlight
-		grid.removeHighlight();
-		
-		// paint path
-		if( showPathProperty.getValue()) {
-			if (path != null) {
-				
-				// highlight path
-				for (Cell cell : path) {
-					cell.highlight();
-				}
-	
-			}
+		// paint path, only the cells which differ from the existing highlight are changed
+		if( showPathProperty.getValue() && path != null) {
+			
+			grid.highlight( path);
+			
+		} else {
+			
+			// remove existing highlight
+			grid.removeHighlight();
+			
 			// no valid path found
-			else {
-				
+			if( showPathProperty.getValue()) {
 				System.err.println("Path not found!");
-	
 			}
 		}
 		
@@ -391,34 +556,34 @@ public class Main extends Application {
 		
 		if( !showSteps)
 			return;
-		
-		// set cell text to empty
-		grid.resetText();		
-		
-		// clear marks
-		for (int row = 0; row < Settings.GRID_ROWS; row++) {
-			for (int col = 0; col < Settings.GRID_COLUMNS; col++) {
-				grid.getCell(col, row).removeMark();
-			}
+
+		if( canvasGrid != null) {
+			showCanvasMarks();
+			return;
 		}
 		
-		// paint
+		// paint; only the cells whose marks or text differ from the previous step are changed
 		int index = (int) stepSlider.getValue();
 		if( index > 0) {
 		
 			int stepIndex = index - 1;
 			
+			// the snapshots set the f,g,h text of their cells
 			List<Cell> openList = aStarWrapper.getOpenSnapshot(stepIndex);
 			List<Cell> closedList = aStarWrapper.getClosedSnapshot(stepIndex);
 			
-			for( Cell cell: openList) {
-				// show open cell mark, but don't override highlight
-				cell.setMark(CellMark.OPEN);
-			}
-			for( Cell cell: closedList) {
-				// show closed cell mark, but don't override highlight
-				cell.setMark(CellMark.CLOSED);
-			}
+			// show open and closed cell marks, they don't override the highlight
+			grid.setMarks( openList, closedList);
+			
+			// set the text of the other cells to empty
+			Set<Cell> stepCells = new HashSet<>( openList);
+			stepCells.addAll( closedList);
+			grid.retainText( stepCells);
+			
+		} else {
+			
+			grid.removeMarks();
+			grid.resetText();
 		}
 
 	}
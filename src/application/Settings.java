@@ -13,4 +13,13 @@ public class Settings {
 	public static int GRID_COLUMNS = 18;
 	
 	public static boolean STEP_VIEW = false;
+	
+	// draw a large grid on a canvas instead of a node per cell
+	public static boolean CANVAS_RENDERER = false;
+	
+	public static int CANVAS_GRID_ROWS = 1000;
+	public static int CANVAS_GRID_COLUMNS = 1000;
+	
+	// time in ms which a search on the canvas grid may take, the partial path is shown if it runs out
+	public static long CANVAS_SEARCH_TIME = 200;
 }
@@ -2,10 +2,7 @@ package application.astar;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Set;
 
 /**
  * This is a 1:1 translation of the algorithm on wikipedia: http://en.wikipedia.org/wiki/A*_search_algorithm
@@ -54,7 +51,7 @@ import java.util.Set;
 public class AStarAlgorithm {
 	
 	/**
-	 * If true the open and closed set are cloned each step of the A* path finding algorithm.
+	 * If true the changes of the open and closed set are recorded each step of the A* path finding algorithm.
 	 */
 	boolean isSnapshotEnabled = true;
 	
@@ -62,13 +59,70 @@ public class AStarAlgorithm {
 	 * Used for visualization of the single steps in the A* algorithm.
 	 * No other relevance to the algorithm. 
 	 */
-	List<AStarSnapshot> snapshots = new ArrayList<>();
+	StepLog stepLog = new StepLog();
+	
+	/**
+	 * Closed state and open set of the search. Reused for every search, so a search doesn't allocate them again.
+	 * The f,g,h values are stored in the cells.
+	 */
+	SearchContext context = new SearchContext( 0);
+	
+	/**
+	 * Heuristic and step costs, null to choose them by the connectivity of each search, see {@link Heuristic#forConnectivity(boolean)}.
+	 */
+	Heuristic heuristic;
+	StepCost stepCost;
+	
+	/**
+	 * Weight of the heuristic in the f score, at least 1. With a weight w > 1 the search is weighted A*: it expands fewer cells
+	 * and the path costs at most w times the optimal cost. With 1 the path is optimal.
+	 */
+	double weight = 1d;
+	
+	public AStarAlgorithm() {
+		this( null, null);
+	}
+	
+	/**
+	 * The step cost is cached, so the searches don't allocate its table.
+	 */
+	public AStarAlgorithm( Heuristic heuristic, StepCost stepCost) {
+		this.heuristic = heuristic;
+		this.stepCost = stepCost != null ? StepCost.cached( stepCost) : null;
+	}
 
+	public boolean isSnapshotEnabled() {
+		return isSnapshotEnabled;
+	}
+	
 	/**
-	 * Get list of snapshots, one snapshot per step in the A* algorithm. 
+	 * Enable or disable the recording of the steps, see {@link #getStepLog()}. The user interface needs them, benchmarks and batch searches don't.
 	 */
-	public List<AStarSnapshot> getSnapshots() {
-		return snapshots;
+	public void setSnapshotEnabled( boolean isSnapshotEnabled) {
+		this.isSnapshotEnabled = isSnapshotEnabled;
+	}
+
+	public double getWeight() {
+		return weight;
+	}
+	
+	/**
+	 * Set the weight of the heuristic, see {@link #weight}.
+	 */
+	public void setWeight( double weight) {
+		
+		if( !(weight >= 1d)) {
+			throw new IllegalArgumentException( "Weight must be at least 1: " + weight);
+		}
+		
+		this.weight = weight;
+	}
+
+	/**
+	 * Get the log of the steps in the A* algorithm, from which the open and closed set of every step can be rebuilt. 
+	 */
+	public StepLog getStepLog() {
+		return stepLog;
 	}
 	
 	/**
@@ -86,71 +140,140 @@ public class AStarAlgorithm {
 	/**
 	 * Find a path from start to goal using the A* algorithm
 	 */
-	@SuppressWarnings("unchecked")
 	public List<AStarCell> getPath( AStarGrid grid, AStarCell start, AStarCell goal, boolean allowDiagonals) {
-
-		if( isSnapshotEnabled) {
-			snapshots.clear();
-		}
 		
+		SearchResult result = search( grid, start, goal, allowDiagonals, SearchBudget.UNLIMITED);
+		
+		return result.isFound() ? getCells( grid, result.getPath()) : new ArrayList<>();
+	}
+	
+	/**
+	 * Find a path from start to goal using the A* algorithm, stop when the budget is used up.
+	 * If it runs out or the search is cancelled, the result contains the path to the expanded cell which is closest to the goal.
+	 */
+	@SuppressWarnings("unchecked")
+	public SearchResult search( AStarGrid grid, AStarCell start, AStarCell goal, boolean allowDiagonals, SearchBudget budget) {
+
 		AStarCell current = null;
 		boolean containsNeighbor;
+		
+		long startTime = System.nanoTime();
+		long expansions = 0;
+		
+		// note: statistics of the search, counted in local variables so that they cost next to nothing
+		long generated = 0;
+		long heuristicEvaluations = 0;
+		int openPeak = 0;
 
 		int cellCount = grid.rows * grid.cols;
 		
+		if( isSnapshotEnabled) {
+			stepLog.begin( cellCount);
+		}
+		
 		// closedset := the empty set    // The set of nodes already evaluated.
-		Set<AStarCell> closedSet = new HashSet<>( cellCount);
+		// note: the closed state is kept in the search context
+		context.begin( cellCount);
 		
 		// openset := {start}    // The set of tentative nodes to be evaluated, initially containing the start node
-	    PriorityQueue<AStarCell> openSet = new PriorityQueue<AStarCell>( cellCount, new CellComparator());
-		openSet.add( start);
+		// note: the open set is an indexed heap of the cell indices (row * cols + col), that allows O(1) membership checks and decreasing the f score in O(log n)
+		IndexedHeap openSet = context.getOpenSet();
+		
+		// note: the strategies are resolved once, the step costs are looked up per direction
+		Heuristic heuristic = this.heuristic != null ? this.heuristic : Heuristic.forConnectivity( allowDiagonals);
+		float[] stepCosts = (stepCost != null ? stepCost : StepCost.forConnectivity( allowDiagonals)).table();
 		
 		// g_score[start] := 0    // Cost from start along best known path.
 		start.g = 0d;
+		start.cameFrom = null;
 		
 	    // Estimated total cost from start to goal through y.
 	    // f_score[start] := g_score[start] + heuristic_cost_estimate(start, goal)
-		start.f = start.g + heuristicCostEstimate(start, goal);
+		// note: scaled by the lowest cost weight of the grid, so that it never overestimates on cheap terrain
+		// note: the h score stays the estimate, only the f score contains the weight
+		start.h = heuristicCostEstimate(heuristic, start, goal) * grid.getMinCost();
+		start.f = start.g + weight * start.h;
+		heuristicEvaluations++;
+		
+		openSet.add( grid.index( start), start.f);
+		generated++;
+		openPeak = 1;
+		
+		// note: expanded cell with the lowest h score, the end of the partial path if the budget runs out
+		AStarCell closest = start;
 		
+		// note: how the search ended and the last cell of the path, null if there is none
+		SearchResult.Status status = SearchResult.Status.NO_PATH;
+		AStarCell end = null;
+		
+		if( isSnapshotEnabled) {
+			stepLog.push( grid.index( start), start.g, start.h);
+		}
 		
 	    // while openset is not empty
 		while( !openSet.isEmpty()) {
+			
+			// note: stop if the budget is used up or the search has been cancelled
+			SearchResult.Status budgetStatus = budget.check( expansions, startTime);
+			
+			if( budgetStatus != null) {
+				status = budgetStatus;
+				end = closest;
+				break;
+			}
 
 			// current := the node in openset having the lowest f_score[] value
-			// note: we have a priorityqueue => for performance reasons we also remove the item instead of removing it later (as suggested in the algorithm)
+			// note: we have a priority queue => for performance reasons we also remove the item instead of removing it later (as suggested in the algorithm)
 			// remove current from openset
-			current = openSet.poll();
+			current = grid.getCell( openSet.poll());
 			
 	        // if current = goal
 	        //        return reconstruct_path(came_from, goal)
 			if( current == goal) {
-				return reconstructPath( goal);
+				status = SearchResult.Status.FOUND;
+				end = goal;
+				break;
 			}
 			
 			// remove current from openset
 			// already done in openSet.poll(), see above
 			 
 			// add current to closedset
-			closedSet.add( current);
+			context.close( grid.index( current));
+			expansions++;
+			
+			if( current.h < closest.h) {
+				closest = current;
+			}
+			
+			if( isSnapshotEnabled) {
+				stepLog.pop( grid.index( current));
+			}
 			
 			// for each neighbor in neighbor_nodes(current)
-			for( AStarCell neighbor: grid.getNeighbors( current, allowDiagonals)) {
+			// note: the neighbors are iterated via bit mask, that way no array is allocated per step
+			int neighborMask = grid.getNeighborMask( current, allowDiagonals);
+			
+			while( neighborMask != 0) {
 				
-				if( neighbor == null) {
-					continue;
-				}
+				int direction = Integer.numberOfTrailingZeros( neighborMask);
+				neighborMask &= neighborMask - 1;
+				
+				AStarCell neighbor = grid.getNeighbor( current, direction);
+				
+				int neighborIndex = grid.index( neighbor);
 				
 	            // if neighbor in closedset
                 //   continue
-				if( closedSet.contains( neighbor)) {
+				if( context.isClosed( neighborIndex)) {
 					continue;
 				}
 				
 				// tentative_g_score := g_score[current] + dist_between(current,neighbor)
-				double tentativeScoreG = current.g + distBetween( current, neighbor);
+				double tentativeScoreG = current.g + distBetween( grid, stepCosts[direction], current, neighbor);
 				
 				// if neighbor not in openset or tentative_g_score < g_score[neighbor]
-				if( !(containsNeighbor=openSet.contains( neighbor)) || Double.compare(tentativeScoreG, neighbor.g) < 0) {
+				if( !(containsNeighbor=openSet.contains( neighborIndex)) || Double.compare(tentativeScoreG, neighbor.g) < 0) {
 					
 					// came_from[neighbor] := current
 					neighbor.cameFrom = current;
@@ -159,47 +282,71 @@ public class AStarAlgorithm {
 					neighbor.g = tentativeScoreG;
 					
 					// f_score[neighbor] := g_score[neighbor] + heuristic_cost_estimate(neighbor, goal)
-					neighbor.h = heuristicCostEstimate(neighbor, goal);
-					neighbor.f = neighbor.g + neighbor.h;
+					neighbor.h = heuristicCostEstimate(heuristic, neighbor, goal) * grid.getMinCost();
+					neighbor.f = neighbor.g + weight * neighbor.h;
+					heuristicEvaluations++;
 					
 	                // if neighbor not in openset
                     //   add neighbor to openset
+					// note: if it is already in the open set, its f score has decreased and the heap order must be restored
 					if( !containsNeighbor) {
-						openSet.add( neighbor);
+						openSet.add( neighborIndex, neighbor.f);
+						generated++;
+						
+						if( openSet.size() > openPeak) {
+							openPeak = openSet.size();
+						}
+					} else {
+						openSet.decreaseKey( neighborIndex, neighbor.f);
+					}
+					
+					if( isSnapshotEnabled) {
+						if( !containsNeighbor) {
+							stepLog.push( neighborIndex, neighbor.g, neighbor.h);
+						} else {
+							stepLog.update( neighborIndex, neighbor.g, neighbor.h);
+						}
 					}
 				}
 			}
 			
 			if( isSnapshotEnabled) {
-				
-				snapshots.add( new AStarSnapshot(openSet, closedSet));
-				
+				stepLog.endStep();
 			}
 				
 		}
 		
-		// nothing found
-		return new ArrayList<>();
+		// note: the path is empty if nothing was found, the cost of a partial path is the g score of its last cell
+		int[] path = end != null ? reconstructPath( grid, end) : new int[0];
+		double cost = end != null ? end.g : Double.POSITIVE_INFINITY;
+		
+		// note: closed cells are never opened again
+		return new SearchResult( status, path, expansions, generated, openPeak, 0, heuristicEvaluations, cost, System.nanoTime() - startTime);
 	}
 	
 	/**
-	 * Create final path of the A* algorithm.
+	 * Create final path of the A* algorithm as cell indices.
 	 * The path is from goal to start.
 	 */
 	// function reconstruct_path(came_from,current)
-	private List<AStarCell> reconstructPath( AStarCell current) {
+	private <T> int[] reconstructPath( AStarGrid<T> grid, AStarCell<T> current) {
+		
+		int length = 0;
+		for( AStarCell<T> cell = current; cell != null; cell = cell.cameFrom) {
+			length++;
+		}
 		
-		List<AStarCell> totalPath = new ArrayList<>(200); // arbitrary value, we'll most likely have more than 10 which is default for java
+		int[] totalPath = new int[ length];
 		
 		// total_path := [current]
-		totalPath.add( current);
+		totalPath[0] = grid.index( current);
 				
 	    // while current in came_from:
         // current := came_from[current]
-		while( (current = current.cameFrom) != null) {
+		for( int i = 1; (current = current.cameFrom) != null; i++) {
 
 		    // total_path.append(current)
-			totalPath.add( current);
+			totalPath[i] = grid.index( current);
 		       
 		}
 	        
@@ -207,22 +354,37 @@ public class AStarAlgorithm {
 		return totalPath;
 	}
 	
+	/**
+	 * Get the cells of a path of cell indices, with the f,g,h values of the search.
+	 */
+	private List<AStarCell> getCells( AStarGrid grid, int[] path) {
+		
+		List<AStarCell> cells = new ArrayList<>( path.length);
+		
+		for( int index: path) {
+			cells.add( grid.getCell( index));
+		}
+		
+		return cells;
+	}
+	
 	/**
 	 * Distance between a given cell and its neighbor.
 	 * Used in the algorithm as distance calculation between the current cell and a neighbor. 
-	 * In our case we use the same distance which we use from the current cell to the goal.
+	 * In our case it is the step cost of the direction, weighted by the mean terrain cost of both cells.
 	 */
-	private double distBetween(AStarCell current, AStarCell neighbor) {
-		return heuristicCostEstimate( current, neighbor);
+	@SuppressWarnings("unchecked")
+	private double distBetween(AStarGrid grid, float stepCost, AStarCell current, AStarCell neighbor) {
+		return stepCost * (grid.getCost( current) + grid.getCost( neighbor)) / 2d;
 	}
 	
 	/**
-	 * Distance between two cells. We use the euclidian distance here. 
+	 * Estimated distance between two cells, see {@link Heuristic}. 
 	 * Used in the algorithm as distance calculation between a cell and the goal. 
 	 */
-	private double heuristicCostEstimate(AStarCell from, AStarCell to) {
+	private double heuristicCostEstimate(Heuristic heuristic, AStarCell from, AStarCell to) {
 		
-		return Math.sqrt((from.col-to.col)*(from.col-to.col) + (from.row - to.row)*(from.row-to.row));
+		return heuristic.estimate( Math.abs(from.col-to.col), Math.abs(from.row-to.row));
 		
 	}
 	
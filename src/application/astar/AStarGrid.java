@@ -1,5 +1,9 @@
 package application.astar;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
 /**
  * Virtual grid for the A* algorithm. Used to determine the neighbors of a cell.
  */
@@ -9,23 +13,138 @@ public class AStarGrid<T> {
 	int cols;
 	int rows;
 	
+	/**
+	 * Cost weight per cell index (row * cols + col), the cost of a step is its length times the mean weight of both cells.
+	 */
+	float[] costs;
+	
+	/**
+	 * Lowest cost weight of the traversable cells. The heuristic is scaled by it to stay admissible.
+	 */
+	float minCost = Float.POSITIVE_INFINITY;
+	
+	/**
+	 * Number of traversable cells per cost weight, so the lowest weight is known after a cell changed.
+	 */
+	TreeMap<Float, Integer> costCounts = new TreeMap<>();
+	
 	public AStarGrid( int cols, int rows) {
 		this.cols = cols;
 		this.rows = rows;
 		gridCells = new AStarCell[rows][cols];
+		costs = new float[ rows * cols];
 	}
 	
 	public void setCell( T cell, int col, int row, boolean path) {
+		setCell( cell, col, row, path, 1f);
+	}
+	
+	/**
+	 * Set a cell with a cost weight. Weights must be positive.
+	 */
+	public void setCell( T cell, int col, int row, boolean path, float cost) {
+		
+		AStarCell<T> previous = gridCells[row][col];
+		
+		if( previous != null && previous.isTraversable) {
+			removeCost( costs[ row * cols + col]);
+		}
+		
 		gridCells[row][col] =  new AStarCell<T>(col,row, path, cell);
+		costs[ row * cols + col] = cost;
+		
+		if( path) {
+			addCost( cost);
+		}
+	}
+	
+	/**
+	 * Change the traversability and the cost weight of an existing cell. The cell object stays the same,
+	 * so a grid can be kept in sync with its source instead of being rebuilt.
+	 */
+	public void update( int col, int row, boolean path, float cost) {
+		
+		AStarCell<T> cell = gridCells[row][col];
+		
+		if( cell.isTraversable) {
+			removeCost( costs[ row * cols + col]);
+		}
+		
+		cell.isTraversable = path;
+		costs[ row * cols + col] = cost;
+		
+		if( path) {
+			addCost( cost);
+		}
+	}
+	
+	private void addCost( float cost) {
+		costCounts.merge( cost, 1, Integer::sum);
+		minCost = costCounts.firstKey();
+	}
+	
+	private void removeCost( float cost) {
+		
+		if( costCounts.merge( cost, -1, Integer::sum) == 0) {
+			costCounts.remove( cost);
+		}
+		
+		minCost = costCounts.isEmpty() ? Float.POSITIVE_INFINITY : costCounts.firstKey();
+	}
+	
+	public int getCols() {
+		return cols;
+	}
+	
+	public int getRows() {
+		return rows;
+	}
+	
+	/**
+	 * Cost weight of the cell.
+	 */
+	public float getCost( AStarCell<T> cell) {
+		return costs[ index( cell)];
+	}
+	
+	/**
+	 * Lowest cost weight of the traversable cells, 1 if there are none.
+	 */
+	public float getMinCost() {
+		return minCost == Float.POSITIVE_INFINITY ? 1f : minCost;
+	}
+	
+	/**
+	 * Cost of a step between two neighboring cells: the euclidian length of the step times the mean cost weight of both cells.
+	 */
+	public double getStepCost( AStarCell<T> from, AStarCell<T> to) {
+		return distance( from, to) * (getCost( from) + getCost( to)) / 2d;
 	}
 	
 	public AStarCell<T> getCell( int col, int row) {
 		return gridCells[row][col];
 	}
 	
+	/**
+	 * Get the cell by its row-major index, see {@link #index(AStarCell)}.
+	 */
+	public AStarCell<T> getCell( int index) {
+		return gridCells[index / cols][index % cols];
+	}
+	
+	/**
+	 * Row-major index of the cell: row * cols + col.
+	 */
+	public int index( AStarCell<T> cell) {
+		return cell.row * cols + cell.col;
+	}
+	
 	/**
 	 * Get neighboring cells relative to the given cell. By default they are top/right/bottom/left. 
 	 * If allowDiagonals is enabled, then also top-left, top-right, bottom-left, bottom-right cells are in the results.
+	 * Diagonal neighbors are only returned if they don't cut a corner, see {@link NeighborMask#removeCornerCutting(int)}.
+	 * The array contains null for neighbors which aren't traversable. 
+	 * Use {@link #getNeighborMask(AStarCell, boolean)} if you don't want an array to be allocated per call.
 	 * @param cell
 	 * @param allowDiagonals
 	 * @return
@@ -34,98 +153,102 @@ public class AStarGrid<T> {
 		
 		AStarCell<T>[] neighbors = new AStarCell[ allowDiagonals ? 8 : 4];
 
-		int currentColumn = cell.col;
-		int currentRow = cell.row;
-
-		int neighborColumn;
-		int neighborRow;
-		
-		// top
-		neighborColumn = currentColumn;
-		neighborRow = currentRow - 1;
+		int mask = getNeighborMask( cell, allowDiagonals);
 		
-		if (neighborRow >= 0) {
-			if( gridCells[neighborRow][neighborColumn].isTraversable) {
-				neighbors[0] = gridCells[neighborRow][neighborColumn];
-			}
+		while( mask != 0) {
+			
+			int direction = Integer.numberOfTrailingZeros( mask);
+			mask &= mask - 1;
+			
+			neighbors[direction] = getNeighbor( cell, direction);
 		}
-
-		// bottom
-		neighborColumn = currentColumn;
-		neighborRow = currentRow + 1;
 		
-		if (neighborRow < rows) {
-			if( gridCells[neighborRow][neighborColumn].isTraversable) {
-				neighbors[1] = gridCells[neighborRow][neighborColumn];
-			}
-		}
-
-		// left
-		neighborColumn = currentColumn - 1;
-		neighborRow = currentRow;
+		return neighbors;
+	}
+	
+	/**
+	 * Get the traversable neighbors of the given cell as bit mask of {@link NeighborMask} directions.
+	 * Diagonal neighbors are only contained if allowDiagonals is enabled and they don't cut a corner. 
+	 */
+	public int getNeighborMask( AStarCell<T> cell, boolean allowDiagonals) {
 		
-		if ( neighborColumn >= 0) {
-			if( gridCells[neighborRow][neighborColumn].isTraversable) {
-				neighbors[2] = gridCells[neighborRow][neighborColumn];
-			}
-		}
-
-		// right
-		neighborColumn = currentColumn + 1;
-		neighborRow = currentRow;
+		int mask = 0;
 		
-		if ( neighborColumn < cols) {
-			if( gridCells[neighborRow][neighborColumn].isTraversable) {
-				neighbors[3] = gridCells[neighborRow][neighborColumn];
-			}
-		}
-
-		if (allowDiagonals) {
+		int directions = allowDiagonals ? 8 : 4;
+		
+		for( int direction = 0; direction < directions; direction++) {
 			
-			// top/left
-			neighborColumn = currentColumn - 1;
-			neighborRow = currentRow - 1;
+			int neighborColumn = cell.col + NeighborMask.COLS[direction];
+			int neighborRow = cell.row + NeighborMask.ROWS[direction];
 			
-			if (neighborRow >= 0 && neighborColumn >= 0) {
+			if( neighborColumn >= 0 && neighborColumn < cols && neighborRow >= 0 && neighborRow < rows) {
 				if( gridCells[neighborRow][neighborColumn].isTraversable) {
-					neighbors[4] = gridCells[neighborRow][neighborColumn];
+					mask |= 1 << direction;
 				}
 			}
-
-			// bottom/right
-			neighborColumn = currentColumn + 1;
-			neighborRow = currentRow + 1;
+		}
+		
+		return NeighborMask.removeCornerCutting( mask);
+	}
+	
+	/**
+	 * Convert a path of cell indices (from goal to start, see {@link #index(AStarCell)}) into the cells of this grid.
+	 * The f,g,h values and the cameFrom pointers are set along the path as the search would have set them: g accumulates
+	 * the step costs weighted by the mean cost weight of both cells from the start, h is the heuristic to the goal scaled by the lowest cost weight.
+	 */
+	public List<AStarCell<T>> getCells( int[] path, Heuristic heuristic, StepCost stepCost) {
+		
+		List<AStarCell<T>> cells = new ArrayList<>( path.length);
+		
+		for( int index: path) {
+			cells.add( getCell( index));
+		}
+		
+		AStarCell<T> goal = path.length > 0 ? cells.get( 0) : null;
+		AStarCell<T> previous = null;
+		
+		// the path is from goal to start, the g score accumulates from the start
+		for( int i = cells.size() - 1; i >= 0; i--) {
 			
-			if (neighborRow < rows && neighborColumn < cols) {
-				if( gridCells[neighborRow][neighborColumn].isTraversable) {
-					neighbors[5] = gridCells[neighborRow][neighborColumn];
-				}
-			}
-
-			// top/right
-			neighborColumn = currentColumn + 1;
-			neighborRow = currentRow - 1;
+			AStarCell<T> cell = cells.get( i);
 			
-			if (neighborRow >= 0 && neighborColumn < cols) {
-				if( gridCells[neighborRow][neighborColumn].isTraversable) {
-					neighbors[6] = gridCells[neighborRow][neighborColumn];
-				}
-			}
-
-			// bottom/left
-			neighborColumn = currentColumn - 1;
-			neighborRow = currentRow + 1;
+			cell.cameFrom = previous;
+			cell.g = previous == null ? 0d : previous.g + stepCost.cost( direction( previous, cell)) * (getCost( previous) + getCost( cell)) / 2d;
+			cell.h = heuristic.estimate( Math.abs( cell.col - goal.col), Math.abs( cell.row - goal.row)) * getMinCost();
+			cell.f = cell.g + cell.h;
 			
-			if (neighborRow < rows && neighborColumn >= 0) {
-				if( gridCells[neighborRow][neighborColumn].isTraversable) {
-					neighbors[7] = gridCells[neighborRow][neighborColumn];
-				}
+			previous = cell;
+		}
+		
+		return cells;
+	}
+	
+	/**
+	 * Euclidian distance between two cells.
+	 */
+	private double distance( AStarCell<T> from, AStarCell<T> to) {
+		return Math.sqrt((from.col-to.col)*(from.col-to.col) + (from.row - to.row)*(from.row-to.row));
+	}
+	
+	/**
+	 * {@link NeighborMask} direction from a cell to its neighbor.
+	 */
+	private int direction( AStarCell<T> from, AStarCell<T> to) {
+		
+		for( int direction = 0; direction < 8; direction++) {
+			if( from.col + NeighborMask.COLS[direction] == to.col && from.row + NeighborMask.ROWS[direction] == to.row) {
+				return direction;
 			}
-
 		}
-
 		
-		return neighbors;
+		throw new IllegalArgumentException( "Cells aren't neighbors: " + from.col + "/" + from.row + ", " + to.col + "/" + to.row);
+	}
+	
+	/**
+	 * Get the neighbor of the cell in the given {@link NeighborMask} direction. The neighbor must be within the grid.
+	 */
+	public AStarCell<T> getNeighbor( AStarCell<T> cell, int direction) {
+		return gridCells[cell.row + NeighborMask.ROWS[direction]][cell.col + NeighborMask.COLS[direction]];
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,312 @@
+package application.astar;
+
+import java.util.Arrays;
+
+/**
+ * Anytime repairing A* (ARA*), see Likhachev, Gordon and Thrun, "ARA*: Anytime A* with Provable Bounds on Sub-Optimality".
+ *
+ * The first search is weighted A* with a high weight, which finds a path quickly. Then the weight is decreased step by step
+ * and the path is improved until the weight is 1 or the time budget is used up. Every search reuses the g scores of the previous
+ * ones: a cell is expanded at most once per search, cells which got cheaper after their expansion are kept in an inconsistent
+ * list and opened again for the next search. The open set is ordered by g + weight * h.
+ *
+ * After every search the suboptimality bound is known: the cost of the path is at most bound times the optimal cost.
+ * The bound can be lower than the weight, it is calculated from the lowest unweighted f score of the open and inconsistent cells.
+ *
+ * Step costs and heuristic are the same as in {@link TerrainAStarAlgorithm}.
+ */
+public class AnytimeAStarAlgorithm implements PathFinder {
+
+	/**
+	 * The clock is read every this many expansions.
+	 */
+	static final int CLOCK_INTERVAL = 256;
+
+	/**
+	 * Receives every path which is better than the previous one.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+
+		/**
+		 * @param path cell indices from goal to start
+		 * @param cost cost of the path
+		 * @param bound the cost is at most bound times the optimal cost
+		 */
+		void pathImproved( int[] path, float cost, double bound);
+	}
+
+	/**
+	 * Context which is used if no context is passed.
+	 */
+	SearchContext context = new SearchContext( 0);
+
+	/**
+	 * Weight of the first search and the amount by which it is decreased for every further search.
+	 */
+	double initialWeight;
+	double weightDecrement;
+
+	/**
+	 * Time in nanoseconds which {@link #findPath(SearchGrid, SearchContext, int, int, boolean)} may take.
+	 */
+	long timeBudget;
+
+	/**
+	 * Suboptimality bound of the path of the last search of this instance, infinite if no path has been found.
+	 */
+	double bound = Double.POSITIVE_INFINITY;
+
+	public AnytimeAStarAlgorithm() {
+		this( 2.5, 0.5, 100_000_000L);
+	}
+
+	/**
+	 * @param initialWeight weight of the first search, at least 1
+	 * @param weightDecrement amount by which the weight is decreased for the next search, greater than 0
+	 * @param timeBudget time in nanoseconds after which the best path found so far is returned
+	 */
+	public AnytimeAStarAlgorithm( double initialWeight, double weightDecrement, long timeBudget) {
+
+		if( !(initialWeight >= 1d)) {
+			throw new IllegalArgumentException( "Weight must be at least 1: " + initialWeight);
+		}
+		if( !(weightDecrement > 0d)) {
+			throw new IllegalArgumentException( "Weight decrement must be greater than 0: " + weightDecrement);
+		}
+
+		this.initialWeight = initialWeight;
+		this.weightDecrement = weightDecrement;
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Find a path from start to goal within the time budget using the context of this algorithm instance.
+	 */
+	public int[] findPath( SearchGrid grid, int start, int goal, boolean allowDiagonals) {
+		return findPath( grid, context, start, goal, allowDiagonals);
+	}
+
+	/**
+	 * Find the best path from start to goal which can be found within the time budget. The bound of it is available via {@link #getBound()}.
+	 */
+	@Override
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals) {
+		return findPath( grid, context, start, goal, allowDiagonals, System.nanoTime() + timeBudget, null);
+	}
+
+	/**
+	 * Improve the path from start to goal until it is optimal or the deadline has passed.
+	 * If the deadline passes before the first path has been found, the result is empty although there may be a path.
+	 *
+	 * @param deadline value of {@link System#nanoTime()} at which the search stops
+	 * @param listener receives every path as soon as it is found, may be null
+	 * @return the last path found, from goal to start
+	 */
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals, long deadline, Listener listener) {
+
+		context.begin( grid.getCellCount());
+
+		IndexedHeap openSet = context.getOpenSet();
+
+		Heuristic heuristic = Heuristic.forConnectivity( allowDiagonals);
+		float[] stepCosts = StepCost.forConnectivity( allowDiagonals).table();
+		float minCost = grid.getMinCost();
+
+		// cells closed in the current search, they are opened again for the next one
+		int[] closed = new int[ 256];
+		int closedCount = 0;
+
+		// closed cells whose g score decreased in the current search; a cell may be listed more than once
+		int[] inconsistent = new int[ 64];
+		int inconsistentCount = 0;
+
+		int[] path = new int[0];
+		float cost = Float.POSITIVE_INFINITY;
+		bound = Double.POSITIVE_INFINITY;
+
+		double weight = initialWeight;
+		int expansions = 0;
+
+		context.open( start, 0f, -1);
+		openSet.add( start, weight * heuristicCostEstimate( grid, heuristic, start, goal, minCost));
+
+		while( true) {
+
+			// weighted A* until the goal has the lowest key, without expanding a cell twice
+			while( !openSet.isEmpty() && !(context.getState( goal) != SearchContext.UNVISITED && context.getG( goal) <= openSet.getKey( openSet.peek()))) {
+
+				if( ++expansions % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+					return path;
+				}
+
+				int current = openSet.poll();
+
+				context.close( current);
+
+				if( closedCount == closed.length) {
+					closed = Arrays.copyOf( closed, closedCount * 2);
+				}
+				closed[closedCount++] = current;
+
+				float currentG = context.getG( current);
+				float currentCost = grid.getCost( current) / 2f;
+
+				int neighborMask = grid.getNeighborMask( current, allowDiagonals);
+
+				while( neighborMask != 0) {
+
+					int direction = Integer.numberOfTrailingZeros( neighborMask);
+					neighborMask &= neighborMask - 1;
+
+					int neighbor = grid.getNeighbor( current, direction);
+
+					byte state = context.getState( neighbor);
+
+					float tentativeScoreG = currentG + stepCosts[direction] * (currentCost + grid.getCost( neighbor) / 2f);
+
+					if( state == SearchContext.UNVISITED) {
+
+						context.open( neighbor, tentativeScoreG, current);
+						openSet.add( neighbor, tentativeScoreG + weight * heuristicCostEstimate( grid, heuristic, neighbor, goal, minCost));
+
+					} else if( tentativeScoreG < context.getG( neighbor)) {
+
+						context.update( neighbor, tentativeScoreG, current);
+
+						if( state == SearchContext.CLOSED) {
+
+							// already expanded in this search, keep it for the next one
+							if( inconsistentCount == inconsistent.length) {
+								inconsistent = Arrays.copyOf( inconsistent, inconsistentCount * 2);
+							}
+							inconsistent[inconsistentCount++] = neighbor;
+
+						} else {
+							openSet.addOrDecreaseKey( neighbor, tentativeScoreG + weight * heuristicCostEstimate( grid, heuristic, neighbor, goal, minCost));
+						}
+					}
+				}
+			}
+
+			if( context.getState( goal) == SearchContext.UNVISITED) {
+				// nothing found
+				return path;
+			}
+
+			// the parents of cells which got cheaper after their expansion have been updated, so the path may cost less than the g score of the goal
+			int[] improvedPath = context.reconstructPath( goal);
+			float improvedCost = pathCost( grid, stepCosts, improvedPath);
+
+			float lowestF = lowestF( grid, context, heuristic, goal, minCost, inconsistent, inconsistentCount);
+
+			// without open and inconsistent cells or with start = goal the path is optimal
+			double improvedBound = improvedCost <= lowestF ? 1d : Math.min( weight, improvedCost / lowestF);
+
+			if( path.length == 0 || improvedCost < cost) {
+
+				path = improvedPath;
+				cost = improvedCost;
+
+				if( listener != null) {
+					listener.pathImproved( path, cost, improvedBound);
+				}
+			}
+
+			bound = Math.min( bound, improvedBound);
+
+			if( weight <= 1d || bound <= 1d) {
+				return path;
+			}
+
+			weight = Math.max( 1d, weight - weightDecrement);
+
+			// the next search may expand every cell again
+			for( int i = 0; i < closedCount; i++) {
+				context.open( closed[i], context.getG( closed[i]), context.getParent( closed[i]));
+			}
+			closedCount = 0;
+
+			// open set = open and inconsistent cells, keyed with the new weight
+			for( int i = 0; i < inconsistentCount; i++) {
+				if( !openSet.contains( inconsistent[i])) {
+					openSet.add( inconsistent[i], 0d);
+				}
+			}
+			inconsistentCount = 0;
+
+			int[] open = new int[ openSet.size()];
+			for( int i = 0; i < open.length; i++) {
+				open[i] = openSet.get( i);
+			}
+
+			openSet.clear();
+
+			for( int cell: open) {
+				openSet.add( cell, context.getG( cell) + weight * heuristicCostEstimate( grid, heuristic, cell, goal, minCost));
+			}
+		}
+	}
+
+	/**
+	 * Lowest unweighted f score of the open and inconsistent cells, a lower bound of the optimal cost. Infinite if there are none.
+	 */
+	private float lowestF( SearchGrid grid, SearchContext context, Heuristic heuristic, int goal, float minCost, int[] inconsistent, int inconsistentCount) {
+
+		IndexedHeap openSet = context.getOpenSet();
+
+		float lowest = Float.POSITIVE_INFINITY;
+
+		for( int i = 0; i < openSet.size(); i++) {
+			int cell = openSet.get( i);
+			lowest = Math.min( lowest, context.getG( cell) + heuristicCostEstimate( grid, heuristic, cell, goal, minCost));
+		}
+
+		for( int i = 0; i < inconsistentCount; i++) {
+			int cell = inconsistent[i];
+			lowest = Math.min( lowest, context.getG( cell) + heuristicCostEstimate( grid, heuristic, cell, goal, minCost));
+		}
+
+		return lowest;
+	}
+
+	/**
+	 * Sum of the step costs of a path.
+	 */
+	private float pathCost( SearchGrid grid, float[] stepCosts, int[] path) {
+
+		float cost = 0f;
+
+		for( int i = 1; i < path.length; i++) {
+
+			boolean isDiagonal = grid.col( path[i]) != grid.col( path[i - 1]) && grid.row( path[i]) != grid.row( path[i - 1]);
+			float stepCost = stepCosts[ isDiagonal ? NeighborMask.TOP_LEFT : NeighborMask.TOP];
+
+			cost += stepCost * (grid.getCost( path[i]) + grid.getCost( path[i - 1])) / 2f;
+		}
+
+		return cost;
+	}
+
+	/**
+	 * Suboptimality bound of the path of the last search which used this instance: its cost is at most bound times the optimal cost.
+	 * 1 if the path is optimal, infinite if none has been found.
+	 */
+	public double getBound() {
+		return bound;
+	}
+
+	/**
+	 * Get the g score of a cell index of the last search which used the context of this algorithm instance.
+	 */
+	public float getG( int index) {
+		return context.getG( index);
+	}
+
+	/**
+	 * Heuristic between two cells times the lowest cost weight.
+	 */
+	private float heuristicCostEstimate( SearchGrid grid, Heuristic heuristic, int from, int to, float minCost) {
+		return heuristic.estimate( Math.abs( grid.col( from) - grid.col( to)), Math.abs( grid.row( from) - grid.row( to))) * minCost;
+	}
+}
@@ -0,0 +1,106 @@
+package application.astar;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many path queries against one grid in parallel.
+ *
+ * The queries are split recursively over the threads of a {@link ForkJoinPool}. Every worker thread uses its own
+ * {@link SearchContext} (see {@link SearchContext#forCurrentThread(int)}), the grid is only read.
+ * The grid must therefore not be changed while a batch is running.
+ *
+ * The search state of {@link AStarAlgorithm} lives on the shared {@link AStarCell} objects, so convert an {@link AStarGrid}
+ * once via {@link PackedGrid#PackedGrid(AStarGrid)} and use one of the {@link PathFinder} implementations instead.
+ */
+public class BatchPathFinder {
+
+	/**
+	 * Number of tasks per thread of the pool. More tasks than threads balance queries of different lengths.
+	 */
+	static final int TASKS_PER_THREAD = 8;
+
+	PathFinder pathFinder;
+	ForkJoinPool pool;
+
+	public BatchPathFinder( PathFinder pathFinder) {
+		this( pathFinder, ForkJoinPool.commonPool());
+	}
+
+	public BatchPathFinder( PathFinder pathFinder, ForkJoinPool pool) {
+		this.pathFinder = pathFinder;
+		this.pool = pool;
+	}
+
+	/**
+	 * Find a path for every pair of starts[i] and goals[i].
+	 * The result contains the path of pair i at index i, each path from goal to start or empty if there is none.
+	 */
+	public int[][] findPaths( SearchGrid grid, int[] starts, int[] goals, boolean allowDiagonals) {
+
+		if( starts.length != goals.length) {
+			throw new IllegalArgumentException( "Number of starts and goals differs: " + starts.length + " != " + goals.length);
+		}
+
+		int[][] paths = new int[ starts.length][];
+
+		if( starts.length == 0) {
+			return paths;
+		}
+
+		int threshold = Math.max( 1, starts.length / (pool.getParallelism() * TASKS_PER_THREAD));
+
+		pool.invoke( new BatchTask( grid, starts, goals, allowDiagonals, paths, 0, starts.length, threshold));
+
+		return paths;
+	}
+
+	/**
+	 * Queries from index "from" (inclusive) to "to" (exclusive).
+	 */
+	class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		SearchGrid grid;
+		int[] starts;
+		int[] goals;
+		boolean allowDiagonals;
+		int[][] paths;
+		int from;
+		int to;
+		int threshold;
+
+		BatchTask( SearchGrid grid, int[] starts, int[] goals, boolean allowDiagonals, int[][] paths, int from, int to, int threshold) {
+			this.grid = grid;
+			this.starts = starts;
+			this.goals = goals;
+			this.allowDiagonals = allowDiagonals;
+			this.paths = paths;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+
+			if( to - from <= threshold) {
+
+				SearchContext context = SearchContext.forCurrentThread( grid.getCellCount());
+
+				for( int i = from; i < to; i++) {
+					paths[i] = pathFinder.findPath( grid, context, starts[i], goals[i], allowDiagonals);
+				}
+
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+
+			invokeAll(
+					new BatchTask( grid, starts, goals, allowDiagonals, paths, from, middle, threshold),
+					new BatchTask( grid, starts, goals, allowDiagonals, paths, middle, to, threshold));
+		}
+	}
+}
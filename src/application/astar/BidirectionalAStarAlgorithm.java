@@ -0,0 +1,165 @@
+package application.astar;
+
+/**
+ * Bidirectional A*: one search runs from the start to the goal, a second one from the goal to the start.
+ * Whenever a search reaches a cell which the other search has visited, the cost of the path through that cell
+ * is a candidate for the result.
+ *
+ * Both searches use the average of the two heuristics as key, see Goldberg and Harrelson, "Computing the Shortest Path: A* Search Meets Graph Theory":
+ * forward g + (h(goal) - h(start)) / 2, backward g + (h(start) - h(goal)) / 2. With these keys the search can stop
+ * as soon as the sum of the lowest keys of both open sets isn't lower than the best candidate, no shorter path can exist then.
+ *
+ * The side with the smaller open set is expanded first, which keeps both searches balanced in corridors.
+ * The neighbors are the same as in {@link PrimitiveAStarAlgorithm}, moves are symmetric so the backward search uses them as well.
+ * The heuristic and the step costs are the ones of the neighbor mode, see {@link Heuristic#forConnectivity(boolean)} and {@link StepCost#forConnectivity(boolean)}.
+ */
+public class BidirectionalAStarAlgorithm implements PathFinder {
+
+	/**
+	 * Find a path from start to goal. The forward search uses the given context, the backward search its reverse context.
+	 */
+	@Override
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals) {
+
+		SearchContext forward = context;
+		SearchContext backward = context.getReverseContext();
+
+		forward.begin( grid.getCellCount());
+		backward.begin( grid.getCellCount());
+
+		Heuristic heuristic = Heuristic.forConnectivity( allowDiagonals);
+		float[] stepCosts = StepCost.forConnectivity( allowDiagonals).table();
+
+		forward.open( start, 0f, -1);
+		forward.getOpenSet().add( start, potential( grid, heuristic, start, start, goal));
+
+		backward.open( goal, 0f, -1);
+		backward.getOpenSet().add( goal, potential( grid, heuristic, goal, goal, start));
+
+		// cost of the best path found so far and the cell in which both searches met
+		float bestCost = Float.POSITIVE_INFINITY;
+		int meetingCell = start == goal ? start : -1;
+
+		if( meetingCell != -1) {
+			bestCost = 0f;
+		}
+
+		while( !forward.getOpenSet().isEmpty() && !backward.getOpenSet().isEmpty()) {
+
+			IndexedHeap forwardOpenSet = forward.getOpenSet();
+			IndexedHeap backwardOpenSet = backward.getOpenSet();
+
+			// termination: no path through the open cells can be shorter than the best path
+			if( forwardOpenSet.getKey( forwardOpenSet.peek()) + backwardOpenSet.getKey( backwardOpenSet.peek()) >= bestCost) {
+				break;
+			}
+
+			boolean expandForward = forwardOpenSet.size() <= backwardOpenSet.size();
+
+			SearchContext expanding = expandForward ? forward : backward;
+			SearchContext other = expandForward ? backward : forward;
+			int origin = expandForward ? start : goal;
+			int target = expandForward ? goal : start;
+
+			int current = expanding.getOpenSet().poll();
+			expanding.close( current);
+
+			float currentG = expanding.getG( current);
+
+			int neighborMask = grid.getNeighborMask( current, allowDiagonals);
+
+			while( neighborMask != 0) {
+
+				int direction = Integer.numberOfTrailingZeros( neighborMask);
+				neighborMask &= neighborMask - 1;
+
+				int neighbor = grid.getNeighbor( current, direction);
+
+				byte state = expanding.getState( neighbor);
+
+				if( state == SearchContext.CLOSED) {
+					continue;
+				}
+
+				float tentativeScoreG = currentG + stepCosts[direction];
+
+				if( state == SearchContext.UNVISITED) {
+
+					expanding.open( neighbor, tentativeScoreG, current);
+					expanding.getOpenSet().add( neighbor, tentativeScoreG + potential( grid, heuristic, neighbor, origin, target));
+
+				} else if( tentativeScoreG < expanding.getG( neighbor)) {
+
+					expanding.update( neighbor, tentativeScoreG, current);
+					expanding.getOpenSet().decreaseKey( neighbor, tentativeScoreG + potential( grid, heuristic, neighbor, origin, target));
+
+				} else {
+					continue;
+				}
+
+				// the other search has been here: candidate path
+				if( other.getState( neighbor) != SearchContext.UNVISITED) {
+
+					float cost = tentativeScoreG + other.getG( neighbor);
+
+					if( cost < bestCost) {
+						bestCost = cost;
+						meetingCell = neighbor;
+					}
+				}
+			}
+		}
+
+		if( meetingCell == -1) {
+			// nothing found
+			return new int[0];
+		}
+
+		return reconstructPath( forward, backward, meetingCell);
+	}
+
+	/**
+	 * Join the path of the forward search from the meeting cell to the start with the path of the backward search from the meeting cell to the goal.
+	 * The path is from goal to start.
+	 */
+	private int[] reconstructPath( SearchContext forward, SearchContext backward, int meetingCell) {
+
+		int forwardLength = 0;
+		for( int current = meetingCell; current != -1; current = forward.getParent( current)) {
+			forwardLength++;
+		}
+
+		int backwardLength = 0;
+		for( int current = backward.getParent( meetingCell); current != -1; current = backward.getParent( current)) {
+			backwardLength++;
+		}
+
+		int[] totalPath = new int[ backwardLength + forwardLength];
+
+		// goal ... cell after the meeting cell
+		int i = backwardLength - 1;
+		for( int current = backward.getParent( meetingCell); current != -1; current = backward.getParent( current)) {
+			totalPath[i--] = current;
+		}
+
+		// meeting cell ... start
+		i = backwardLength;
+		for( int current = meetingCell; current != -1; current = forward.getParent( current)) {
+			totalPath[i++] = current;
+		}
+
+		return totalPath;
+	}
+
+	/**
+	 * Average of the heuristic to the target and the negated heuristic to the origin of a search.
+	 * The potentials of the forward and the backward search add up to zero, that makes the termination criterion possible.
+	 */
+	private double potential( SearchGrid grid, Heuristic heuristic, int cell, int origin, int target) {
+		return (heuristicCostEstimate( grid, heuristic, cell, target) - heuristicCostEstimate( grid, heuristic, cell, origin)) / 2d;
+	}
+
+	private float heuristicCostEstimate( SearchGrid grid, Heuristic heuristic, int from, int to) {
+		return heuristic.estimate( Math.abs( grid.col( from) - grid.col( to)), Math.abs( grid.row( from) - grid.row( to)));
+	}
+}
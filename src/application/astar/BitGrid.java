@@ -0,0 +1,233 @@
+package application.astar;
+
+/**
+ * Grid which packs the traversability into one bit per cell, 64 cells per long word.
+ *
+ * The bits are stored twice: row-major, where a word holds 64 consecutive cells of a row, and column-major,
+ * where a word holds 64 consecutive cells of a column. A search which moves along a row or column can therefore test
+ * 64 cells at once with {@link #getRowBits(int, int)} and {@link #getColumnBits(int, int)} and find the first interesting
+ * cell with {@link Long#numberOfTrailingZeros(long)}, see {@link JumpPointSearchAlgorithm}.
+ *
+ * Every row and column starts with a new word, the unused bits of the last word are 0, i. e. not traversable.
+ */
+public class BitGrid implements SearchGrid {
+
+	/**
+	 * {@link NeighborMask} without corner cutting per 3x3 neighborhood. Index bits 0..2 are the cells col-1..col+1 of the row above,
+	 * bits 3..5 of the row itself and bits 6..8 of the row below.
+	 */
+	static final byte[] NEIGHBOR_MASKS = new byte[ 512];
+
+	static {
+		for( int bits = 0; bits < 512; bits++) {
+
+			int mask = 0;
+
+			for( int direction = 0; direction < 8; direction++) {
+				int bit = (NeighborMask.ROWS[direction] + 1) * 3 + NeighborMask.COLS[direction] + 1;
+				if( (bits & (1 << bit)) != 0) {
+					mask |= 1 << direction;
+				}
+			}
+
+			NEIGHBOR_MASKS[bits] = (byte) NeighborMask.removeCornerCutting( mask);
+		}
+	}
+
+	int cols;
+	int rows;
+
+	int wordsPerRow;
+	int wordsPerColumn;
+
+	/**
+	 * Traversability bits, row by row. Bit (col & 63) of word row * wordsPerRow + (col >> 6).
+	 */
+	long[] rowWords;
+
+	/**
+	 * Traversability bits, column by column. Bit (row & 63) of word col * wordsPerColumn + (row >> 6).
+	 */
+	long[] columnWords;
+
+	long version;
+
+	/**
+	 * Create a grid in which no cell is traversable.
+	 */
+	public BitGrid( int cols, int rows) {
+		this.cols = cols;
+		this.rows = rows;
+		wordsPerRow = (cols + 63) >>> 6;
+		wordsPerColumn = (rows + 63) >>> 6;
+		rowWords = new long[ wordsPerRow * rows];
+		columnWords = new long[ wordsPerColumn * cols];
+	}
+
+	/**
+	 * Copy the traversability of an existing A* grid.
+	 */
+	public BitGrid( AStarGrid<?> grid) {
+
+		this( grid.cols, grid.rows);
+
+		for( int row=0; row < rows; row++) {
+			for( int col=0; col < cols; col++) {
+				if( grid.gridCells[row][col].isTraversable) {
+					setBits( col, row);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getCols() {
+		return cols;
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getCellCount() {
+		return cols * rows;
+	}
+
+	@Override
+	public boolean isTraversable( int index) {
+		int row = row( index);
+		int col = index - row * cols;
+		return (rowWords[ row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+	}
+
+	@Override
+	public void setTraversable( int col, int row, boolean isTraversable) {
+
+		if( isTraversable) {
+			setBits( col, row);
+		} else {
+			rowWords[ row * wordsPerRow + (col >>> 6)] &= ~(1L << col);
+			columnWords[ col * wordsPerColumn + (row >>> 6)] &= ~(1L << row);
+		}
+
+		version++;
+	}
+
+	@Override
+	public int getNeighborMask( int index, boolean allowDiagonals) {
+
+		int row = row( index);
+		int col = index - row * cols;
+
+		int bits = (int) (getRowBits( col - 1, row - 1) & 7) | (int) (getRowBits( col - 1, row) & 7) << 3 | (int) (getRowBits( col - 1, row + 1) & 7) << 6;
+
+		return NEIGHBOR_MASKS[bits] & NeighborMask.directions( allowDiagonals);
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Traversability of the 64 cells of a row starting at the given column: bit i is set if the cell (col + i, row) is traversable.
+	 * Cells outside of the grid are not traversable, col may be negative.
+	 */
+	public long getRowBits( int col, int row) {
+
+		if( row < 0 || row >= rows) {
+			return 0L;
+		}
+
+		return window( rowWords, row * wordsPerRow, wordsPerRow, col);
+	}
+
+	/**
+	 * Traversability of the 64 cells of a column starting at the given row: bit i is set if the cell (col, row + i) is traversable.
+	 * Cells outside of the grid are not traversable, row may be negative.
+	 */
+	public long getColumnBits( int col, int row) {
+
+		if( col < 0 || col >= cols) {
+			return 0L;
+		}
+
+		return window( columnWords, col * wordsPerColumn, wordsPerColumn, row);
+	}
+
+	/**
+	 * True if all cells of the row between the two columns (inclusive, in any order) are traversable.
+	 */
+	public boolean isRowClear( int row, int fromCol, int toCol) {
+
+		int col = Math.min( fromCol, toCol);
+		int end = Math.max( fromCol, toCol);
+
+		for( ; col <= end; col += 64) {
+
+			long blocked = ~getRowBits( col, row);
+
+			if( end - col < 63) {
+				// ignore the cells behind the end
+				blocked &= (1L << (end - col + 1)) - 1;
+			}
+
+			if( blocked != 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * True if all cells of the column between the two rows (inclusive, in any order) are traversable.
+	 */
+	public boolean isColumnClear( int col, int fromRow, int toRow) {
+
+		int row = Math.min( fromRow, toRow);
+		int end = Math.max( fromRow, toRow);
+
+		for( ; row <= end; row += 64) {
+
+			long blocked = ~getColumnBits( col, row);
+
+			if( end - row < 63) {
+				blocked &= (1L << (end - row + 1)) - 1;
+			}
+
+			if( blocked != 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void setBits( int col, int row) {
+		rowWords[ row * wordsPerRow + (col >>> 6)] |= 1L << col;
+		columnWords[ col * wordsPerColumn + (row >>> 6)] |= 1L << row;
+	}
+
+	/**
+	 * 64 bits of a row or column of words, starting at the given bit. Bits outside of the words are 0.
+	 */
+	private static long window( long[] words, int offset, int length, int bit) {
+
+		// arithmetic shift, so negative bits belong to word -1
+		int word = bit >> 6;
+		int shift = bit & 63;
+
+		long low = word >= 0 && word < length ? words[ offset + word] : 0L;
+
+		if( shift == 0) {
+			return low;
+		}
+
+		long high = word + 1 >= 0 && word + 1 < length ? words[ offset + word + 1] : 0L;
+
+		return (low >>> shift) | (high << (64 - shift));
+	}
+}
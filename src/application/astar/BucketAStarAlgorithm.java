@@ -0,0 +1,120 @@
+package application.astar;
+
+/**
+ * A* with integer step costs and a {@link BucketQueue} as open set instead of a binary heap.
+ *
+ * A straight step costs {@link #STRAIGHT_COST}, a diagonal step {@link #DIAGONAL_COST}, i. e. 1 and sqrt(2) scaled by 10 and rounded.
+ * The heuristic is the octile distance in the same units (Manhattan distance without diagonals), which is consistent,
+ * so the key of a new cell exceeds the key of the expanded cell by at most 2 * DIAGONAL_COST and the bucket window suffices.
+ * Pushing and decreasing a key are O(1), polling is O(1) amortized, no keys are compared.
+ *
+ * The paths are optimal for the integer costs. Because 14 is slightly less than 10 * sqrt(2), a path may differ from the path
+ * of {@link PrimitiveAStarAlgorithm} where both are almost equally long. Terrain costs are not considered.
+ * The g scores are integers stored in the float array of the {@link SearchContext}; they are exact up to 2^24.
+ */
+public class BucketAStarAlgorithm implements PathFinder {
+
+	public static final int STRAIGHT_COST = 10;
+	public static final int DIAGONAL_COST = 14;
+
+	/**
+	 * Highest difference between the keys in the open set.
+	 */
+	static final int KEY_RANGE = 2 * DIAGONAL_COST;
+
+	/**
+	 * Context which is used if no context is passed.
+	 */
+	SearchContext context = new SearchContext( 0);
+
+	/**
+	 * Find a path from start to goal using the context of this algorithm instance.
+	 */
+	public int[] findPath( SearchGrid grid, int start, int goal, boolean allowDiagonals) {
+		return findPath( grid, context, start, goal, allowDiagonals);
+	}
+
+	/**
+	 * Find a path from start to goal.
+	 */
+	@Override
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals) {
+
+		context.begin( grid.getCellCount());
+
+		BucketQueue openSet = context.getBucketQueue( KEY_RANGE);
+
+		int goalCol = grid.col( goal);
+		int goalRow = grid.row( goal);
+
+		context.open( start, 0f, -1);
+		openSet.add( start, heuristicCostEstimate( grid, start, goalCol, goalRow, allowDiagonals));
+
+		while( !openSet.isEmpty()) {
+
+			int current = openSet.poll();
+
+			if( current == goal) {
+				return context.reconstructPath( goal);
+			}
+
+			context.close( current);
+
+			int currentG = (int) context.getG( current);
+
+			int neighborMask = grid.getNeighborMask( current, allowDiagonals);
+
+			while( neighborMask != 0) {
+
+				int direction = Integer.numberOfTrailingZeros( neighborMask);
+				neighborMask &= neighborMask - 1;
+
+				int neighbor = grid.getNeighbor( current, direction);
+
+				byte state = context.getState( neighbor);
+
+				if( state == SearchContext.CLOSED) {
+					continue;
+				}
+
+				int tentativeScoreG = currentG + (NeighborMask.isDiagonal( direction) ? DIAGONAL_COST : STRAIGHT_COST);
+
+				if( state == SearchContext.UNVISITED) {
+
+					context.open( neighbor, tentativeScoreG, current);
+					openSet.add( neighbor, tentativeScoreG + heuristicCostEstimate( grid, neighbor, goalCol, goalRow, allowDiagonals));
+
+				} else if( tentativeScoreG < context.getG( neighbor)) {
+
+					context.update( neighbor, tentativeScoreG, current);
+					openSet.decreaseKey( neighbor, tentativeScoreG + heuristicCostEstimate( grid, neighbor, goalCol, goalRow, allowDiagonals));
+				}
+			}
+		}
+
+		// nothing found
+		return new int[0];
+	}
+
+	/**
+	 * Get the integer g score of a cell index of the last search which used the context of this algorithm instance.
+	 */
+	public int getG( int index) {
+		return (int) context.getG( index);
+	}
+
+	/**
+	 * Octile distance (Manhattan distance without diagonals) in integer cost units.
+	 */
+	private int heuristicCostEstimate( SearchGrid grid, int from, int goalCol, int goalRow, boolean allowDiagonals) {
+
+		int dc = Math.abs( grid.col( from) - goalCol);
+		int dr = Math.abs( grid.row( from) - goalRow);
+
+		if( !allowDiagonals) {
+			return STRAIGHT_COST * (dc + dr);
+		}
+
+		return STRAIGHT_COST * Math.max( dc, dr) + (DIAGONAL_COST - STRAIGHT_COST) * Math.min( dc, dr);
+	}
+}
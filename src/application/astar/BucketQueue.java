@@ -0,0 +1,173 @@
+package application.astar;
+
+import java.util.Arrays;
+
+/**
+ * Open set for small integer keys, a bucket queue after Dial, "Algorithm 360: Shortest-Path Forest with Topological Ordering".
+ *
+ * Every key has a bucket, a doubly linked list of cell indices threaded through per-cell arrays. Adding a cell, removing it and
+ * decreasing its key are O(1) and no keys are compared. Polling moves a cursor over the buckets up to the next non-empty one.
+ *
+ * Only a window of keys is kept: every key must be in [lowest key, lowest key + bucket count), where the lowest key is the
+ * key of the last polled cell. That holds for A* with integer step costs and a consistent integer heuristic, because the key of
+ * a new cell exceeds the key of the expanded cell by at most twice the highest step cost. The buckets are reused cyclically.
+ *
+ * Cells with the same key are polled last in, first out, which prefers the cells found last, i. e. those nearer to the goal.
+ */
+public class BucketQueue {
+
+	static final int NONE = -1;
+
+	/**
+	 * First cell index per bucket, NONE if the bucket is empty. The length is a power of two.
+	 */
+	int[] head;
+
+	int bucketMask;
+
+	/**
+	 * Next and previous cell index in the bucket, per cell index.
+	 */
+	int[] next;
+	int[] previous;
+
+	/**
+	 * Key per cell index, NONE if the cell isn't in the queue.
+	 */
+	int[] key;
+
+	int size;
+
+	/**
+	 * Key of the bucket at which the search for the next cell starts.
+	 */
+	int lowestKey;
+
+	/**
+	 * @param capacity number of cell indices
+	 * @param keyRange highest difference between the keys of the contained cells, the bucket count is the next power of two above it
+	 */
+	public BucketQueue( int capacity, int keyRange) {
+
+		int buckets = Integer.highestOneBit( keyRange) << 1;
+
+		head = new int[ buckets];
+		bucketMask = buckets - 1;
+		Arrays.fill( head, NONE);
+
+		next = new int[ capacity];
+		previous = new int[ capacity];
+		key = new int[ capacity];
+		Arrays.fill( key, NONE);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return key.length;
+	}
+
+	public boolean contains( int index) {
+		return key[index] != NONE;
+	}
+
+	public int getKey( int index) {
+		return key[index];
+	}
+
+	/**
+	 * Add a cell index which isn't in the queue yet. The key must be within the window of the queue.
+	 */
+	public void add( int index, int k) {
+
+		if( k < lowestKey || k - lowestKey > bucketMask) {
+
+			if( size > 0) {
+				throw new IllegalArgumentException( "Key " + k + " outside of [" + lowestKey + ", " + (lowestKey + bucketMask) + "]");
+			}
+
+			// empty queue: move the window, but keep it at the last polled key otherwise, the next key may be lower than this one
+			lowestKey = k;
+		}
+
+		int bucket = k & bucketMask;
+		int first = head[bucket];
+
+		key[index] = k;
+		previous[index] = NONE;
+		next[index] = first;
+
+		if( first != NONE) {
+			previous[first] = index;
+		}
+
+		head[bucket] = index;
+		size++;
+	}
+
+	/**
+	 * Set a lower key for a cell index which is already in the queue.
+	 */
+	public void decreaseKey( int index, int k) {
+		remove( index);
+		add( index, k);
+	}
+
+	/**
+	 * Remove a cell index from the queue, no matter in which bucket it is.
+	 */
+	public void remove( int index) {
+
+		int before = previous[index];
+		int after = next[index];
+
+		if( before != NONE) {
+			next[before] = after;
+		} else {
+			head[ key[index] & bucketMask] = after;
+		}
+
+		if( after != NONE) {
+			previous[after] = before;
+		}
+
+		key[index] = NONE;
+		size--;
+	}
+
+	/**
+	 * Remove a cell index with the lowest key and return it. The queue must not be empty.
+	 */
+	public int poll() {
+
+		while( head[ lowestKey & bucketMask] == NONE) {
+			lowestKey++;
+		}
+
+		int result = head[ lowestKey & bucketMask];
+		remove( result);
+
+		return result;
+	}
+
+	/**
+	 * Remove all cell indices. Only the buckets and the contained cells are touched.
+	 */
+	public void clear() {
+
+		for( int bucket = 0; bucket < head.length; bucket++) {
+			for( int index = head[bucket]; index != NONE; index = next[index]) {
+				key[index] = NONE;
+			}
+			head[bucket] = NONE;
+		}
+
+		size = 0;
+	}
+}
@@ -0,0 +1,18 @@
+package application.astar;
+
+/**
+ * Flag with which another thread can stop a running search, see {@link SearchBudget}.
+ * A token can be shared by several searches; once cancelled it stays cancelled.
+ */
+public class CancellationToken {
+
+	volatile boolean cancelled;
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,326 @@
+package application.astar;
+
+import java.util.Arrays;
+
+/**
+ * Incremental replanning with D* Lite, see Koenig and Likhachev, "D* Lite".
+ *
+ * The search runs backwards from the goal and keeps its state (g and rhs values, open set) between calls.
+ * When cells change via {@link #setTraversable(int, int, boolean)} only the cells around the change become inconsistent,
+ * and the next {@link #findPath(int, int)} repairs just the part of the search tree which depends on them.
+ * The start may move between calls as well; only a new goal starts the search from scratch.
+ *
+ * The heuristic and the step costs are the ones of the neighbor mode, see {@link Heuristic#forConnectivity(boolean)} and {@link StepCost#forConnectivity(boolean)}.
+ * The g and rhs values, the heuristic and the keys are doubles. All of them are sums of the float step costs, which a double holds without rounding,
+ * so keys which are equal in theory are equal in the open set and the search stops exactly when the start is consistent.
+ * One instance belongs to one grid and one neighbor mode.
+ */
+public class DStarLiteAlgorithm {
+
+	static final double INFINITY = Double.POSITIVE_INFINITY;
+
+	SearchGrid grid;
+	boolean allowDiagonals;
+
+	/**
+	 * Cost from the cell to the goal as of the last expansion, per cell index.
+	 */
+	double[] g;
+
+	/**
+	 * One-step lookahead of g: the lowest cost to the goal via one of the neighbors, per cell index.
+	 */
+	double[] rhs;
+
+	/**
+	 * Inconsistent cells (g != rhs), ordered by [min(g, rhs) + h + km; min(g, rhs)].
+	 */
+	IndexedHeap openSet;
+
+	int start = -1;
+	int goal = -1;
+
+	/**
+	 * Start of the last key modifier update.
+	 */
+	int lastStart;
+
+	/**
+	 * Key modifier, the sum of the heuristic distances the start has moved. Saves reordering the open set when the start moves.
+	 */
+	double km;
+
+	float[] stepCosts;
+
+	public DStarLiteAlgorithm( SearchGrid grid, boolean allowDiagonals) {
+
+		this.grid = grid;
+		this.allowDiagonals = allowDiagonals;
+		this.stepCosts = StepCost.forConnectivity( allowDiagonals).table();
+
+		int cellCount = grid.getCellCount();
+
+		g = new double[ cellCount];
+		rhs = new double[ cellCount];
+		openSet = new IndexedHeap( cellCount, true);
+	}
+
+	/**
+	 * Find a path from start to goal, reusing the search state of the previous call if the goal is the same.
+	 * The result contains the cell indices of the path from goal to start; it is empty if there is no path.
+	 */
+	public int[] findPath( int start, int goal) {
+
+		if( goal != this.goal) {
+			initialize( start, goal);
+		} else if( start != this.start) {
+			km += heuristicCostEstimate( lastStart, start);
+			lastStart = start;
+			this.start = start;
+		}
+
+		computeShortestPath();
+
+		return extractPath();
+	}
+
+	/**
+	 * Change the traversability of a cell. The cells whose edges changed are queued for the next search.
+	 */
+	public void setTraversable( int col, int row, boolean isTraversable) {
+
+		int index = grid.index( col, row);
+
+		if( grid.isTraversable( index) == isTraversable) {
+			return;
+		}
+
+		grid.setTraversable( col, row, isTraversable);
+
+		if( goal == -1) {
+			return;
+		}
+
+		// with the corner-cutting rule the edges between the surrounding cells change as well
+		for( int neighborRow = Math.max( row - 1, 0); neighborRow <= Math.min( row + 1, grid.getRows() - 1); neighborRow++) {
+			for( int neighborCol = Math.max( col - 1, 0); neighborCol <= Math.min( col + 1, grid.getCols() - 1); neighborCol++) {
+				updateVertex( grid.index( neighborCol, neighborRow));
+			}
+		}
+	}
+
+	/**
+	 * Cost of the path of the last search, infinite if there is none.
+	 */
+	public double getPathCost() {
+		return start == -1 ? INFINITY : g[start];
+	}
+
+	private void initialize( int start, int goal) {
+
+		this.start = start;
+		this.goal = goal;
+		this.lastStart = start;
+		this.km = 0;
+
+		Arrays.fill( g, INFINITY);
+		Arrays.fill( rhs, INFINITY);
+		openSet.clear();
+
+		if( grid.isTraversable( goal)) {
+			rhs[goal] = 0d;
+			openSet.add( goal, heuristicCostEstimate( start, goal), 0d);
+		}
+	}
+
+	private void computeShortestPath() {
+
+		while( !openSet.isEmpty()) {
+
+			int top = openSet.peek();
+
+			double startKey = calculateKey( start);
+			double startTieKey = Math.min( g[start], rhs[start]);
+
+			double topKey = openSet.getKey( top);
+
+			boolean topBeforeStart = topKey < startKey || (topKey == startKey && openSet.getTieKey( top) < startTieKey);
+
+			if( !topBeforeStart && rhs[start] == g[start]) {
+				break;
+			}
+
+			double oldKey = openSet.getKey( top);
+			double oldTieKey = openSet.getTieKey( top);
+
+			double newKey = calculateKey( top);
+			double newTieKey = Math.min( g[top], rhs[top]);
+
+			if( oldKey < newKey || (oldKey == newKey && oldTieKey < newTieKey)) {
+
+				// key is outdated because the start has moved
+				openSet.update( top, newKey, newTieKey);
+
+			} else if( g[top] > rhs[top]) {
+
+				// overconsistent: the cell got cheaper, propagate to the neighbors
+				openSet.poll();
+				g[top] = rhs[top];
+				updateNeighbors( top);
+
+			} else {
+
+				// underconsistent: the cell got more expensive, reset it and let the neighbors find another way
+				openSet.poll();
+				g[top] = INFINITY;
+				updateVertex( top);
+				updateNeighbors( top);
+			}
+		}
+	}
+
+	private void updateNeighbors( int cell) {
+
+		// moves are symmetric, the predecessors of a cell are its neighbors
+		int neighborMask = grid.getNeighborMask( cell, allowDiagonals);
+
+		while( neighborMask != 0) {
+
+			int direction = Integer.numberOfTrailingZeros( neighborMask);
+			neighborMask &= neighborMask - 1;
+
+			updateVertex( grid.getNeighbor( cell, direction));
+		}
+	}
+
+	/**
+	 * Recompute the rhs value of a cell and queue it if it is inconsistent.
+	 */
+	private void updateVertex( int cell) {
+
+		if( cell != goal) {
+			rhs[cell] = lowestNeighborCost( cell);
+		} else {
+			rhs[cell] = grid.isTraversable( cell) ? 0d : INFINITY;
+		}
+
+		if( openSet.contains( cell)) {
+			openSet.remove( cell);
+		}
+
+		if( g[cell] != rhs[cell]) {
+			openSet.add( cell, calculateKey( cell), Math.min( g[cell], rhs[cell]));
+		}
+	}
+
+	/**
+	 * Lowest cost to the goal via one of the neighbors.
+	 */
+	private double lowestNeighborCost( int cell) {
+
+		if( !grid.isTraversable( cell)) {
+			return INFINITY;
+		}
+
+		double lowest = INFINITY;
+
+		int neighborMask = grid.getNeighborMask( cell, allowDiagonals);
+
+		while( neighborMask != 0) {
+
+			int direction = Integer.numberOfTrailingZeros( neighborMask);
+			neighborMask &= neighborMask - 1;
+
+			double cost = g[ grid.getNeighbor( cell, direction)] + stepCosts[direction];
+
+			if( cost < lowest) {
+				lowest = cost;
+			}
+		}
+
+		return lowest;
+	}
+
+	private double calculateKey( int cell) {
+		return Math.min( g[cell], rhs[cell]) + heuristicCostEstimate( start, cell) + km;
+	}
+
+	/**
+	 * Follow the cheapest neighbors from the start to the goal. The path is from goal to start.
+	 * It is empty if the walk doesn't reach the goal, e. g. because it runs in a circle; a partial walk is never returned.
+	 */
+	private int[] extractPath() {
+
+		if( g[start] == INFINITY || !grid.isTraversable( start)) {
+			// nothing found
+			return new int[0];
+		}
+
+		int[] path = new int[ 16];
+		int length = 0;
+
+		int current = start;
+		path[length++] = current;
+
+		while( current != goal && length <= grid.getCellCount()) {
+
+			int next = -1;
+			double lowest = INFINITY;
+
+			int neighborMask = grid.getNeighborMask( current, allowDiagonals);
+
+			while( neighborMask != 0) {
+
+				int direction = Integer.numberOfTrailingZeros( neighborMask);
+				neighborMask &= neighborMask - 1;
+
+				int neighbor = grid.getNeighbor( current, direction);
+				double cost = g[neighbor] + stepCosts[direction];
+
+				if( cost < lowest) {
+					lowest = cost;
+					next = neighbor;
+				}
+			}
+
+			if( next == -1) {
+				return new int[0];
+			}
+
+			if( length == path.length) {
+				path = Arrays.copyOf( path, length * 2);
+			}
+
+			path[length++] = next;
+			current = next;
+		}
+
+		if( current != goal) {
+			return new int[0];
+		}
+
+		// reverse: goal to start
+		int[] totalPath = new int[ length];
+		for( int i = 0; i < length; i++) {
+			totalPath[i] = path[length - 1 - i];
+		}
+
+		return totalPath;
+	}
+
+	/**
+	 * Heuristic for the neighbor mode, see {@link Heuristic#forConnectivity(boolean)}. It is computed in double instead of via
+	 * {@link Heuristic#estimate(int, int)}: the float result is rounded and may exceed the sum of the step costs, the double one equals it.
+	 */
+	private double heuristicCostEstimate( int from, int to) {
+
+		int dc = Math.abs( grid.col( from) - grid.col( to));
+		int dr = Math.abs( grid.row( from) - grid.row( to));
+
+		if( !allowDiagonals) {
+			return dc + dr;
+		}
+
+		return Math.max( dc, dr) + (double) StepCost.DIAGONAL_EXTRA * Math.min( dc, dr);
+	}
+}
@@ -0,0 +1,72 @@
+package application.astar;
+
+/**
+ * Estimate of the cost between two cells from their absolute column and row differences.
+ *
+ * The estimate must not exceed the cost of the cheapest path with the {@link StepCost} of the search, otherwise the paths
+ * aren't optimal. The tighter it is, the fewer cells are expanded: {@link #MANHATTAN} is exact on an empty 4-connected grid,
+ * {@link #OCTILE} on an empty 8-connected grid. {@link #forConnectivity(boolean)} chooses between them.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+	/**
+	 * Sum of the differences, for 4-connected grids.
+	 */
+	Heuristic MANHATTAN = (dc, dr) -> dc + dr;
+
+	/**
+	 * Straight steps plus diagonal steps of cost sqrt(2), for 8-connected grids with {@link StepCost#OCTILE}.
+	 */
+	Heuristic OCTILE = (dc, dr) -> dc > dr ? dc + StepCost.DIAGONAL_EXTRA * dr : dr + StepCost.DIAGONAL_EXTRA * dc;
+
+	/**
+	 * Larger of the differences, for 8-connected grids in which a diagonal step costs the same as a straight one ({@link StepCost#UNIFORM}).
+	 */
+	Heuristic CHEBYSHEV = (dc, dr) -> Math.max( dc, dr);
+
+	/**
+	 * Straight-line distance, admissible for all step costs but looser than the others.
+	 */
+	Heuristic EUCLIDEAN = new Euclidean();
+
+	/**
+	 * @param dc absolute column difference
+	 * @param dr absolute row difference
+	 */
+	float estimate( int dc, int dr);
+
+	/**
+	 * The tightest of the heuristics above for the step costs of {@link StepCost#forConnectivity(boolean)}.
+	 */
+	static Heuristic forConnectivity( boolean allowDiagonals) {
+		return allowDiagonals ? OCTILE : MANHATTAN;
+	}
+
+	/**
+	 * Euclidian distance which looks up the square roots of small squared distances in a table instead of calling {@link Math#sqrt(double)}.
+	 */
+	final class Euclidean implements Heuristic {
+
+		/**
+		 * Squared distances below this size are in the table (256 KB), i. e. distances up to 256 cells.
+		 */
+		static final int TABLE_SIZE = 1 << 16;
+
+		static final float[] SQRT = new float[ TABLE_SIZE];
+
+		static {
+			for( int i = 0; i < TABLE_SIZE; i++) {
+				SQRT[i] = (float) Math.sqrt( i);
+			}
+		}
+
+		@Override
+		public float estimate( int dc, int dr) {
+
+			int squared = dc * dc + dr * dr;
+
+			return squared < TABLE_SIZE ? SQRT[squared] : (float) Math.sqrt( squared);
+		}
+	}
+}
@@ -0,0 +1,603 @@
+package application.astar;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical path finding (HPA*), see Botea, Mueller and Schaeffer, "Near Optimal Hierarchical Path-Finding".
+ *
+ * The grid is partitioned into square clusters. Where two neighboring clusters share a traversable border,
+ * entrances are placed: one in the middle of short border openings, one at each end of long ones.
+ * The entrance cells are the nodes of a small abstract graph. Nodes of the same cluster are connected by their
+ * distance within the cluster, the two cells of an entrance are connected by a single step.
+ *
+ * A query connects start and goal to the nodes of their clusters, searches the abstract graph and then refines
+ * every abstract edge with a search which is limited to one cluster. The paths are near optimal, they always pass
+ * cluster borders at entrances.
+ *
+ * The heuristic and the step costs are the ones of the neighbor mode, see {@link Heuristic#forConnectivity(boolean)} and {@link StepCost#forConnectivity(boolean)}.
+ *
+ * The abstraction is built for one grid and one neighbor mode. Cells must be changed via {@link #setTraversable(int, int, boolean)},
+ * that rebuilds only the clusters and borders around the changed cell. Changes must not happen while a search is running.
+ */
+public class HierarchicalPathFinder implements PathFinder {
+
+	/**
+	 * Openings of at least this length get two entrances instead of one.
+	 */
+	static final int MIN_DOUBLE_ENTRANCE_LENGTH = 6;
+
+	SearchGrid grid;
+	int clusterSize;
+	boolean allowDiagonals;
+
+	int clustersX;
+	int clustersY;
+
+	/**
+	 * Entrances on the border to the right neighbor, per cluster: pairs of (left cell index, right cell index).
+	 */
+	int[][] verticalEntrances;
+
+	/**
+	 * Entrances on the border to the bottom neighbor, per cluster: pairs of (top cell index, bottom cell index).
+	 */
+	int[][] horizontalEntrances;
+
+	/**
+	 * Cell indices of the abstract nodes per cluster.
+	 */
+	int[][] clusterNodes;
+
+	/**
+	 * Distances within the cluster between all of its nodes, per cluster: row-major matrix of node x node.
+	 */
+	float[][] clusterDistances;
+
+	Heuristic heuristic;
+	float[] stepCosts;
+
+	public HierarchicalPathFinder( SearchGrid grid, int clusterSize, boolean allowDiagonals) {
+
+		this.grid = grid;
+		this.clusterSize = clusterSize;
+		this.allowDiagonals = allowDiagonals;
+		this.heuristic = Heuristic.forConnectivity( allowDiagonals);
+		this.stepCosts = StepCost.forConnectivity( allowDiagonals).table();
+
+		clustersX = (grid.getCols() + clusterSize - 1) / clusterSize;
+		clustersY = (grid.getRows() + clusterSize - 1) / clusterSize;
+
+		int clusterCount = clustersX * clustersY;
+
+		verticalEntrances = new int[ clusterCount][];
+		horizontalEntrances = new int[ clusterCount][];
+		clusterNodes = new int[ clusterCount][];
+		clusterDistances = new float[ clusterCount][];
+
+		for( int cluster = 0; cluster < clusterCount; cluster++) {
+			verticalEntrances[cluster] = findVerticalEntrances( cluster);
+			horizontalEntrances[cluster] = findHorizontalEntrances( cluster);
+		}
+
+		SearchContext local = new SearchContext( clusterSize * clusterSize);
+
+		for( int cluster = 0; cluster < clusterCount; cluster++) {
+			buildCluster( local, cluster);
+		}
+	}
+
+	/**
+	 * Change the traversability of a cell and rebuild the clusters whose nodes or distances depend on it.
+	 */
+	public void setTraversable( int col, int row, boolean isTraversable) {
+
+		grid.setTraversable( col, row, isTraversable);
+
+		int clusterX = col / clusterSize;
+		int clusterY = row / clusterSize;
+		int cluster = clusterY * clustersX + clusterX;
+
+		// the cluster itself and every neighbor with which it shares a border through the changed cell
+		int[] affected = new int[] { cluster, -1, -1, -1, -1};
+
+		if( col % clusterSize == 0 && clusterX > 0) {
+			verticalEntrances[cluster - 1] = findVerticalEntrances( cluster - 1);
+			affected[1] = cluster - 1;
+		}
+		if( (col + 1) % clusterSize == 0 && clusterX < clustersX - 1) {
+			verticalEntrances[cluster] = findVerticalEntrances( cluster);
+			affected[2] = cluster + 1;
+		}
+		if( row % clusterSize == 0 && clusterY > 0) {
+			horizontalEntrances[cluster - clustersX] = findHorizontalEntrances( cluster - clustersX);
+			affected[3] = cluster - clustersX;
+		}
+		if( (row + 1) % clusterSize == 0 && clusterY < clustersY - 1) {
+			horizontalEntrances[cluster] = findHorizontalEntrances( cluster);
+			affected[4] = cluster + clustersX;
+		}
+
+		SearchContext local = new SearchContext( clusterSize * clusterSize);
+
+		for( int affectedCluster: affected) {
+			if( affectedCluster != -1) {
+				buildCluster( local, affectedCluster);
+			}
+		}
+	}
+
+	/**
+	 * Find a path on an object grid. The abstraction of this path finder belongs to its own grid, so a new one with the same
+	 * cluster size is built for a copy of the object grid. That costs more than the search itself, use {@link #findPath(SearchGrid, SearchContext, int, int, boolean)}
+	 * on the grid of this path finder for repeated searches.
+	 */
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public List<AStarCell> getPath( AStarGrid grid, AStarCell start, AStarCell goal, boolean allowDiagonals) {
+
+		PackedGrid packedGrid = new PackedGrid( grid);
+
+		HierarchicalPathFinder pathFinder = new HierarchicalPathFinder( packedGrid, clusterSize, allowDiagonals);
+
+		int[] path = pathFinder.findPath( packedGrid, SearchContext.forCurrentThread( packedGrid.getCellCount()), grid.index( start), grid.index( goal), allowDiagonals);
+
+		return grid.getCells( path, getHeuristic( allowDiagonals), getStepCost( allowDiagonals));
+	}
+
+	/**
+	 * Find a path from start to goal. The grid must be the grid of this path finder and allowDiagonals must match its neighbor mode.
+	 */
+	@Override
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals) {
+
+		if( grid != this.grid || allowDiagonals != this.allowDiagonals) {
+			throw new IllegalArgumentException( "The abstraction was built for another grid or neighbor mode");
+		}
+
+		if( start == goal) {
+			return new int[] { start};
+		}
+
+		if( !grid.isTraversable( start) || !grid.isTraversable( goal)) {
+			return new int[0];
+		}
+
+		SearchContext local = new SearchContext( clusterSize * clusterSize);
+
+		int startCluster = clusterOf( start);
+		int goalCluster = clusterOf( goal);
+
+		// connect start and goal to the nodes of their clusters
+		searchCluster( local, startCluster, start, -1);
+		float[] startDistances = nodeDistances( local, startCluster);
+		float directDistance = startCluster == goalCluster ? distance( local, startCluster, goal) : Float.POSITIVE_INFINITY;
+
+		searchCluster( local, goalCluster, goal, -1);
+		float[] goalDistances = nodeDistances( local, goalCluster);
+
+		// search the abstract graph
+		context.begin( grid.getCellCount());
+
+		IndexedHeap openSet = context.getOpenSet();
+
+		context.open( start, 0f, -1);
+		openSet.add( start, heuristicCostEstimate( start, goal));
+
+		boolean found = false;
+
+		while( !openSet.isEmpty()) {
+
+			int current = openSet.poll();
+
+			if( current == goal) {
+				found = true;
+				break;
+			}
+
+			context.close( current);
+
+			float currentG = context.getG( current);
+			int cluster = clusterOf( current);
+
+			if( current == start) {
+
+				int[] nodes = clusterNodes[startCluster];
+				for( int i = 0; i < nodes.length; i++) {
+					relax( context, current, nodes[i], currentG + startDistances[i], goal);
+				}
+
+				relax( context, current, goal, currentG + directDistance, goal);
+			}
+
+			int node = nodeIndex( cluster, current);
+
+			if( node != -1) {
+
+				// intra-cluster edges
+				int[] nodes = clusterNodes[cluster];
+				float[] distances = clusterDistances[cluster];
+
+				for( int i = 0; i < nodes.length; i++) {
+					if( i != node) {
+						relax( context, current, nodes[i], currentG + distances[node * nodes.length + i], goal);
+					}
+				}
+
+				// inter-cluster edges
+				relaxEntrances( context, current, verticalEntrances[cluster], currentG, goal);
+				relaxEntrances( context, current, horizontalEntrances[cluster], currentG, goal);
+
+				if( cluster % clustersX > 0) {
+					relaxEntrances( context, current, verticalEntrances[cluster - 1], currentG, goal);
+				}
+				if( cluster >= clustersX) {
+					relaxEntrances( context, current, horizontalEntrances[cluster - clustersX], currentG, goal);
+				}
+
+				if( cluster == goalCluster) {
+					relax( context, current, goal, currentG + goalDistances[node], goal);
+				}
+			}
+		}
+
+		if( !found) {
+			// nothing found
+			return new int[0];
+		}
+
+		return refinePath( context, local, goal);
+	}
+
+	/**
+	 * Turn the abstract path into a path of grid cells. The path is from goal to start.
+	 */
+	private int[] refinePath( SearchContext context, SearchContext local, int goal) {
+
+		int[] abstractPath = context.reconstructPath( goal);
+
+		int[] totalPath = new int[ abstractPath.length * clusterSize];
+		int length = 0;
+
+		totalPath[length++] = goal;
+
+		for( int i = 0; i < abstractPath.length - 1; i++) {
+
+			int from = abstractPath[i];
+			int to = abstractPath[i + 1];
+
+			int cluster = clusterOf( from);
+
+			if( cluster != clusterOf( to)) {
+
+				// entrance, the cells are next to each other
+				if( length == totalPath.length) {
+					totalPath = Arrays.copyOf( totalPath, length * 2);
+				}
+				totalPath[length++] = to;
+
+				continue;
+			}
+
+			// search backwards, then the parents lead from "from" to "to"
+			searchCluster( local, cluster, to, from);
+
+			// without "from" which is already in the path
+			for( int cell = localParent( local, cluster, from); cell != -1; cell = localParent( local, cluster, cell)) {
+
+				if( length == totalPath.length) {
+					totalPath = Arrays.copyOf( totalPath, length * 2);
+				}
+				totalPath[length++] = cell;
+			}
+		}
+
+		return Arrays.copyOf( totalPath, length);
+	}
+
+	private void relax( SearchContext context, int current, int neighbor, float tentativeScoreG, int goal) {
+
+		if( tentativeScoreG == Float.POSITIVE_INFINITY) {
+			return;
+		}
+
+		byte state = context.getState( neighbor);
+
+		if( state == SearchContext.UNVISITED) {
+
+			context.open( neighbor, tentativeScoreG, current);
+			context.getOpenSet().add( neighbor, tentativeScoreG + heuristicCostEstimate( neighbor, goal));
+
+		} else if( state == SearchContext.OPEN && tentativeScoreG < context.getG( neighbor)) {
+
+			context.update( neighbor, tentativeScoreG, current);
+			context.getOpenSet().decreaseKey( neighbor, tentativeScoreG + heuristicCostEstimate( neighbor, goal));
+		}
+	}
+
+	/**
+	 * Relax the entrance partner of the current cell, if the current cell is part of one of the entrances.
+	 */
+	private void relaxEntrances( SearchContext context, int current, int[] entrances, float currentG, int goal) {
+		for( int i = 0; i < entrances.length; i += 2) {
+			if( entrances[i] == current) {
+				relax( context, current, entrances[i + 1], currentG + 1f, goal);
+			} else if( entrances[i + 1] == current) {
+				relax( context, current, entrances[i], currentG + 1f, goal);
+			}
+		}
+	}
+
+	/**
+	 * Collect the nodes of a cluster from the entrances on its four borders and compute the distances between them.
+	 */
+	private void buildCluster( SearchContext local, int cluster) {
+
+		int[] nodes = new int[0];
+
+		nodes = addNodes( nodes, verticalEntrances[cluster], 0);
+		nodes = addNodes( nodes, horizontalEntrances[cluster], 0);
+
+		if( cluster % clustersX > 0) {
+			nodes = addNodes( nodes, verticalEntrances[cluster - 1], 1);
+		}
+		if( cluster >= clustersX) {
+			nodes = addNodes( nodes, horizontalEntrances[cluster - clustersX], 1);
+		}
+
+		clusterNodes[cluster] = nodes;
+
+		float[] distances = new float[ nodes.length * nodes.length];
+
+		for( int i = 0; i < nodes.length; i++) {
+
+			searchCluster( local, cluster, nodes[i], -1);
+
+			for( int j = 0; j < nodes.length; j++) {
+				distances[i * nodes.length + j] = distance( local, cluster, nodes[j]);
+			}
+		}
+
+		clusterDistances[cluster] = distances;
+	}
+
+	/**
+	 * Add the cells of the entrance pairs on the given side (0 or 1) to the nodes, without duplicates.
+	 */
+	private int[] addNodes( int[] nodes, int[] entrances, int side) {
+
+		for( int i = side; i < entrances.length; i += 2) {
+
+			boolean contained = false;
+			for( int node: nodes) {
+				if( node == entrances[i]) {
+					contained = true;
+					break;
+				}
+			}
+
+			if( !contained) {
+				nodes = Arrays.copyOf( nodes, nodes.length + 1);
+				nodes[nodes.length - 1] = entrances[i];
+			}
+		}
+
+		return nodes;
+	}
+
+	/**
+	 * Entrances on the border between the cluster and its right neighbor.
+	 */
+	private int[] findVerticalEntrances( int cluster) {
+
+		int clusterX = cluster % clustersX;
+
+		if( clusterX == clustersX - 1) {
+			return new int[0];
+		}
+
+		int col = (clusterX + 1) * clusterSize - 1;
+		int rowStart = (cluster / clustersX) * clusterSize;
+		int rowEnd = Math.min( rowStart + clusterSize, grid.getRows());
+
+		return findEntrances( grid.index( col, rowStart), grid.getCols(), 1, rowEnd - rowStart);
+	}
+
+	/**
+	 * Entrances on the border between the cluster and its bottom neighbor.
+	 */
+	private int[] findHorizontalEntrances( int cluster) {
+
+		int clusterY = cluster / clustersX;
+
+		if( clusterY == clustersY - 1) {
+			return new int[0];
+		}
+
+		int row = (clusterY + 1) * clusterSize - 1;
+		int colStart = (cluster % clustersX) * clusterSize;
+		int colEnd = Math.min( colStart + clusterSize, grid.getCols());
+
+		return findEntrances( grid.index( colStart, row), 1, grid.getCols(), colEnd - colStart);
+	}
+
+	/**
+	 * Scan a border for openings where the cells on both sides are traversable.
+	 * @param first index of the first cell on the near side of the border
+	 * @param step index difference between two cells along the border
+	 * @param across index difference between a cell and the cell on the other side of the border
+	 * @param length number of cells along the border
+	 * @return pairs of (near cell index, far cell index)
+	 */
+	private int[] findEntrances( int first, int step, int across, int length) {
+
+		int[] entrances = new int[0];
+
+		int openingStart = -1;
+
+		for( int i = 0; i <= length; i++) {
+
+			int cell = first + i * step;
+			boolean open = i < length && grid.isTraversable( cell) && grid.isTraversable( cell + across);
+
+			if( open && openingStart == -1) {
+				openingStart = i;
+			} else if( !open && openingStart != -1) {
+
+				int openingEnd = i - 1;
+
+				if( openingEnd - openingStart + 1 < MIN_DOUBLE_ENTRANCE_LENGTH) {
+					entrances = addEntrance( entrances, first + (openingStart + openingEnd) / 2 * step, across);
+				} else {
+					entrances = addEntrance( entrances, first + openingStart * step, across);
+					entrances = addEntrance( entrances, first + openingEnd * step, across);
+				}
+
+				openingStart = -1;
+			}
+		}
+
+		return entrances;
+	}
+
+	private int[] addEntrance( int[] entrances, int cell, int across) {
+		entrances = Arrays.copyOf( entrances, entrances.length + 2);
+		entrances[entrances.length - 2] = cell;
+		entrances[entrances.length - 1] = cell + across;
+		return entrances;
+	}
+
+	/**
+	 * Dijkstra search from the source cell which doesn't leave the cluster. The search stops at the target cell, or explores the whole cluster if the target is -1.
+	 * The local context uses cluster-local indices.
+	 */
+	private void searchCluster( SearchContext local, int cluster, int source, int target) {
+
+		int colStart = (cluster % clustersX) * clusterSize;
+		int rowStart = (cluster / clustersX) * clusterSize;
+		int colEnd = Math.min( colStart + clusterSize, grid.getCols());
+		int rowEnd = Math.min( rowStart + clusterSize, grid.getRows());
+
+		local.begin( clusterSize * clusterSize);
+
+		IndexedHeap openSet = local.getOpenSet();
+
+		int sourceLocal = toLocal( cluster, source);
+		int targetLocal = target == -1 ? -1 : toLocal( cluster, target);
+
+		local.open( sourceLocal, 0f, -1);
+		openSet.add( sourceLocal, 0d);
+
+		while( !openSet.isEmpty()) {
+
+			int current = openSet.poll();
+
+			if( current == targetLocal) {
+				return;
+			}
+
+			local.close( current);
+
+			int currentCol = colStart + current % clusterSize;
+			int currentRow = rowStart + current / clusterSize;
+			float currentG = local.getG( current);
+
+			int neighborMask = grid.getNeighborMask( grid.index( currentCol, currentRow), allowDiagonals);
+
+			while( neighborMask != 0) {
+
+				int direction = Integer.numberOfTrailingZeros( neighborMask);
+				neighborMask &= neighborMask - 1;
+
+				int neighborCol = currentCol + NeighborMask.COLS[direction];
+				int neighborRow = currentRow + NeighborMask.ROWS[direction];
+
+				if( neighborCol < colStart || neighborCol >= colEnd || neighborRow < rowStart || neighborRow >= rowEnd) {
+					continue;
+				}
+
+				int neighbor = (neighborRow - rowStart) * clusterSize + (neighborCol - colStart);
+
+				byte state = local.getState( neighbor);
+
+				if( state == SearchContext.CLOSED) {
+					continue;
+				}
+
+				float tentativeScoreG = currentG + stepCosts[direction];
+
+				if( state == SearchContext.UNVISITED) {
+					local.open( neighbor, tentativeScoreG, current);
+					openSet.add( neighbor, tentativeScoreG);
+				} else if( tentativeScoreG < local.getG( neighbor)) {
+					local.update( neighbor, tentativeScoreG, current);
+					openSet.decreaseKey( neighbor, tentativeScoreG);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Distances of the last cluster search to all nodes of the cluster.
+	 */
+	private float[] nodeDistances( SearchContext local, int cluster) {
+
+		int[] nodes = clusterNodes[cluster];
+		float[] distances = new float[ nodes.length];
+
+		for( int i = 0; i < nodes.length; i++) {
+			distances[i] = distance( local, cluster, nodes[i]);
+		}
+
+		return distances;
+	}
+
+	/**
+	 * Distance of the last cluster search to the given cell, infinite if the cell wasn't reached.
+	 */
+	private float distance( SearchContext local, int cluster, int cell) {
+		int cellLocal = toLocal( cluster, cell);
+		return local.getState( cellLocal) == SearchContext.UNVISITED ? Float.POSITIVE_INFINITY : local.getG( cellLocal);
+	}
+
+	/**
+	 * Cell index of the parent of a cell in the last cluster search, -1 for the source.
+	 */
+	private int localParent( SearchContext local, int cluster, int cell) {
+		int parent = local.getParent( toLocal( cluster, cell));
+		return parent == -1 ? -1 : toCell( cluster, parent);
+	}
+
+	private int clusterOf( int cell) {
+		return (grid.row( cell) / clusterSize) * clustersX + grid.col( cell) / clusterSize;
+	}
+
+	private int nodeIndex( int cluster, int cell) {
+		int[] nodes = clusterNodes[cluster];
+		for( int i = 0; i < nodes.length; i++) {
+			if( nodes[i] == cell) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int toLocal( int cluster, int cell) {
+		int colStart = (cluster % clustersX) * clusterSize;
+		int rowStart = (cluster / clustersX) * clusterSize;
+		return (grid.row( cell) - rowStart) * clusterSize + (grid.col( cell) - colStart);
+	}
+
+	private int toCell( int cluster, int local) {
+		int colStart = (cluster % clustersX) * clusterSize;
+		int rowStart = (cluster / clustersX) * clusterSize;
+		return grid.index( colStart + local % clusterSize, rowStart + local / clusterSize);
+	}
+
+	/**
+	 * Heuristic for the neighbor mode, see {@link Heuristic#forConnectivity(boolean)}.
+	 */
+	private float heuristicCostEstimate( int from, int to) {
+		return heuristic.estimate( Math.abs( grid.col( from) - grid.col( to)), Math.abs( grid.row( from) - grid.row( to)));
+	}
+}
@@ -0,0 +1,227 @@
+package application.astar;
+
+import java.util.Arrays;
+
+/**
+ * Open set of the A* algorithm: a binary min heap of cell indices ordered by their key (the f score).
+ * The heap position of every cell index is tracked, so membership checks are O(1)
+ * and the key of a contained cell can be decreased in O(log n) without breaking the heap order.
+ */
+public class IndexedHeap {
+
+	/**
+	 * Cell indices in heap order.
+	 */
+	int[] heap;
+
+	/**
+	 * Position in the heap per cell index, -1 if the cell isn't in the heap.
+	 */
+	int[] position;
+
+	/**
+	 * Key per cell index. Only valid while the cell is in the heap.
+	 */
+	double[] key;
+
+	/**
+	 * Second key per cell index which decides between equal keys, null if the heap has been created without tie keys.
+	 */
+	double[] tieKey;
+
+	int size;
+
+	public IndexedHeap( int capacity) {
+		this( capacity, false);
+	}
+
+	/**
+	 * @param withTieKeys if true, cells with equal keys are ordered by a second key (lexicographic order)
+	 */
+	public IndexedHeap( int capacity, boolean withTieKeys) {
+		heap = new int[ capacity];
+		position = new int[ capacity];
+		key = new double[ capacity];
+		tieKey = withTieKeys ? new double[ capacity] : null;
+		Arrays.fill( position, -1);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return position.length;
+	}
+
+	public boolean contains( int index) {
+		return position[index] != -1;
+	}
+
+	public double getKey( int index) {
+		return key[index];
+	}
+
+	public double getTieKey( int index) {
+		return tieKey[index];
+	}
+
+	/**
+	 * Cell index at the given heap position, 0 <= position < size.
+	 */
+	public int get( int heapPosition) {
+		return heap[heapPosition];
+	}
+
+	/**
+	 * Add a cell index which isn't in the heap yet.
+	 */
+	public void add( int index, double f) {
+		key[index] = f;
+		heap[size] = index;
+		position[index] = size;
+		siftUp( size++);
+	}
+
+	/**
+	 * Set a lower key for a cell index which is already in the heap.
+	 */
+	public void decreaseKey( int index, double f) {
+		key[index] = f;
+		siftUp( position[index]);
+	}
+
+	/**
+	 * Add a cell index which isn't in the heap yet, with a key and a tie key.
+	 */
+	public void add( int index, double f, double tie) {
+		tieKey[index] = tie;
+		add( index, f);
+	}
+
+	/**
+	 * Change the key and tie key of a cell index which is already in the heap, in either direction.
+	 */
+	public void update( int index, double f, double tie) {
+		key[index] = f;
+		tieKey[index] = tie;
+		siftUp( position[index]);
+		siftDown( position[index]);
+	}
+
+	/**
+	 * Remove a cell index from the heap, no matter where it is.
+	 */
+	public void remove( int index) {
+
+		int pos = position[index];
+		position[index] = -1;
+
+		int last = heap[--size];
+		if( pos < size) {
+			heap[pos] = last;
+			position[last] = pos;
+			siftUp( pos);
+			siftDown( position[last]);
+		}
+	}
+
+	/**
+	 * Add the cell index or decrease its key if it is already in the heap.
+	 */
+	public void addOrDecreaseKey( int index, double f) {
+		if( contains( index)) {
+			decreaseKey( index, f);
+		} else {
+			add( index, f);
+		}
+	}
+
+	/**
+	 * Cell index with the lowest key, without removing it.
+	 */
+	public int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * Remove the cell index with the lowest key and return it.
+	 */
+	public int poll() {
+
+		int result = heap[0];
+		position[result] = -1;
+
+		int last = heap[--size];
+		if( size > 0) {
+			heap[0] = last;
+			position[last] = 0;
+			siftDown( 0);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Remove all cell indices. Only the contained cells are touched, so this is O(size).
+	 */
+	public void clear() {
+		for( int i=0; i < size; i++) {
+			position[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * True if the first cell index has to be polled before the second one.
+	 */
+	private boolean less( int a, int b) {
+		return key[a] < key[b] || (tieKey != null && key[a] == key[b] && tieKey[a] < tieKey[b]);
+	}
+
+	private void siftUp( int pos) {
+
+		int index = heap[pos];
+
+		while( pos > 0) {
+			int parentPos = (pos - 1) >>> 1;
+			int parent = heap[parentPos];
+			if( !less( index, parent)) {
+				break;
+			}
+			heap[pos] = parent;
+			position[parent] = pos;
+			pos = parentPos;
+		}
+
+		heap[pos] = index;
+		position[index] = pos;
+	}
+
+	private void siftDown( int pos) {
+
+		int index = heap[pos];
+		int half = size >>> 1;
+
+		while( pos < half) {
+			int childPos = 2 * pos + 1;
+			int child = heap[childPos];
+			if( childPos + 1 < size && less( heap[childPos + 1], child)) {
+				child = heap[++childPos];
+			}
+			if( !less( child, index)) {
+				break;
+			}
+			heap[pos] = child;
+			position[child] = pos;
+			pos = childPos;
+		}
+
+		heap[pos] = index;
+		position[index] = pos;
+	}
+}
@@ -0,0 +1,313 @@
+package application.astar;
+
+/**
+ * Jump Point Search for uniform-cost 8-connected grids, see Harabor and Grastien, "Online Graph Pruning for Pathfinding on Grid Maps".
+ * It is the A* algorithm of {@link PrimitiveAStarAlgorithm}, but instead of adding every neighbor to the open set
+ * the search jumps in a straight or diagonal line until it reaches a cell which has a forced neighbor.
+ * Only these jump points are added to the open set, which skips the large symmetric regions of open maps.
+ *
+ * Diagonal steps follow the same corner-cutting rule as {@link NeighborMask#removeCornerCutting(int)},
+ * so the paths have the same cost as the paths of the plain A* algorithm.
+ * Without diagonals the search falls back to {@link PrimitiveAStarAlgorithm}.
+ *
+ * On a {@link BitGrid} the horizontal and vertical jumps test 64 cells per step instead of one.
+ */
+public class JumpPointSearchAlgorithm implements PathFinder {
+
+	/**
+	 * {@link NeighborMask} direction per column/row offset, indexed by (dRow + 1) * 3 + (dCol + 1).
+	 */
+	static final int[] DIRECTIONS = {
+			NeighborMask.TOP_LEFT, NeighborMask.TOP, NeighborMask.TOP_RIGHT,
+			NeighborMask.LEFT, -1, NeighborMask.RIGHT,
+			NeighborMask.BOTTOM_LEFT, NeighborMask.BOTTOM, NeighborMask.BOTTOM_RIGHT
+	};
+
+	PrimitiveAStarAlgorithm orthogonalSearch = new PrimitiveAStarAlgorithm();
+
+	/**
+	 * Find a path from start to goal. The path contains every cell, not only the jump points.
+	 */
+	@Override
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals) {
+
+		if( !allowDiagonals) {
+			return orthogonalSearch.findPath( grid, context, start, goal, false);
+		}
+
+		context.begin( grid.getCellCount());
+
+		IndexedHeap openSet = context.getOpenSet();
+
+		int goalCol = grid.col( goal);
+		int goalRow = grid.row( goal);
+
+		context.open( start, 0f, -1);
+		openSet.add( start, heuristicCostEstimate( grid, start, goal));
+
+		while( !openSet.isEmpty()) {
+
+			int current = openSet.poll();
+
+			if( current == goal) {
+				return expandPath( grid, context, goal);
+			}
+
+			context.close( current);
+
+			int currentCol = grid.col( current);
+			int currentRow = grid.row( current);
+			float currentG = context.getG( current);
+
+			int neighborMask = prunedNeighbors( grid, context, current);
+
+			while( neighborMask != 0) {
+
+				int direction = Integer.numberOfTrailingZeros( neighborMask);
+				neighborMask &= neighborMask - 1;
+
+				int jumpPoint = jump( grid, currentCol + NeighborMask.COLS[direction], currentRow + NeighborMask.ROWS[direction], NeighborMask.COLS[direction], NeighborMask.ROWS[direction], goalCol, goalRow);
+
+				if( jumpPoint == -1) {
+					continue;
+				}
+
+				byte state = context.getState( jumpPoint);
+
+				if( state == SearchContext.CLOSED) {
+					continue;
+				}
+
+				float tentativeScoreG = currentG + octileDistance( grid, current, jumpPoint);
+
+				if( state == SearchContext.UNVISITED) {
+
+					context.open( jumpPoint, tentativeScoreG, current);
+					openSet.add( jumpPoint, tentativeScoreG + heuristicCostEstimate( grid, jumpPoint, goal));
+
+				} else if( tentativeScoreG < context.getG( jumpPoint)) {
+
+					context.update( jumpPoint, tentativeScoreG, current);
+					openSet.decreaseKey( jumpPoint, tentativeScoreG + heuristicCostEstimate( grid, jumpPoint, goal));
+				}
+			}
+		}
+
+		// nothing found
+		return new int[0];
+	}
+
+	/**
+	 * Get the neighbors of a cell which have to be considered with respect to the direction we came from.
+	 * The start cell has no parent, all of its neighbors are considered.
+	 */
+	private int prunedNeighbors( SearchGrid grid, SearchContext context, int current) {
+
+		int mask = grid.getNeighborMask( current, true);
+
+		int parent = context.getParent( current);
+		if( parent == -1) {
+			return mask;
+		}
+
+		int dx = Integer.signum( grid.col( current) - grid.col( parent));
+		int dy = Integer.signum( grid.row( current) - grid.row( parent));
+
+		int allowed;
+
+		if( dx != 0 && dy != 0) {
+			// diagonal: the natural neighbors are the horizontal, vertical and diagonal continuation
+			allowed = bit( dx, 0) | bit( 0, dy) | bit( dx, dy);
+		} else if( dx != 0) {
+			// horizontal: without corner cutting the cells above and below may be forced neighbors
+			allowed = bit( dx, 0) | bit( 0, -1) | bit( 0, 1) | bit( dx, -1) | bit( dx, 1);
+		} else {
+			// vertical: without corner cutting the cells left and right may be forced neighbors
+			allowed = bit( 0, dy) | bit( -1, 0) | bit( 1, 0) | bit( -1, dy) | bit( 1, dy);
+		}
+
+		return mask & allowed;
+	}
+
+	/**
+	 * Move from the given cell in the direction (dx, dy) until a jump point is found.
+	 * Returns the index of the jump point or -1 if the search hits an obstacle or the grid border.
+	 */
+	private int jump( SearchGrid grid, int col, int row, int dx, int dy, int goalCol, int goalRow) {
+
+		if( grid instanceof BitGrid) {
+			if( dy == 0) {
+				return jumpHorizontal( (BitGrid) grid, col, row, dx, goalCol, goalRow);
+			}
+			if( dx == 0) {
+				return jumpVertical( (BitGrid) grid, col, row, dy, goalCol, goalRow);
+			}
+		}
+
+		while( true) {
+
+			if( !isTraversable( grid, col, row)) {
+				return -1;
+			}
+
+			if( col == goalCol && row == goalRow) {
+				return grid.index( col, row);
+			}
+
+			if( dx != 0 && dy != 0) {
+
+				// diagonal: the cell is a jump point if a horizontal or vertical jump from it finds one
+				if( jump( grid, col + dx, row, dx, 0, goalCol, goalRow) != -1 || jump( grid, col, row + dy, 0, dy, goalCol, goalRow) != -1) {
+					return grid.index( col, row);
+				}
+
+				// next diagonal step must not cut a corner
+				if( !isTraversable( grid, col + dx, row) || !isTraversable( grid, col, row + dy)) {
+					return -1;
+				}
+
+			} else if( dx != 0) {
+
+				// horizontal: forced neighbor above or below
+				if( (isTraversable( grid, col, row - 1) && !isTraversable( grid, col - dx, row - 1)) || (isTraversable( grid, col, row + 1) && !isTraversable( grid, col - dx, row + 1))) {
+					return grid.index( col, row);
+				}
+
+			} else {
+
+				// vertical: forced neighbor left or right
+				if( (isTraversable( grid, col - 1, row) && !isTraversable( grid, col - 1, row - dy)) || (isTraversable( grid, col + 1, row) && !isTraversable( grid, col + 1, row - dy))) {
+					return grid.index( col, row);
+				}
+			}
+
+			col += dx;
+			row += dy;
+		}
+	}
+
+	/**
+	 * Horizontal {@link #jump(SearchGrid, int, int, int, int, int, int)}, 64 cells at a time.
+	 * A cell with a forced neighbor is one whose cell above (below) is traversable while the cell above (below) the previous cell isn't.
+	 */
+	private int jumpHorizontal( BitGrid grid, int col, int row, int dx, int goalCol, int goalRow) {
+
+		while( true) {
+
+			// window of 64 cells in moving direction: bit 0 is the first cell when moving right, bit 63 when moving left
+			int first = dx > 0 ? col : col - 63;
+
+			long open = grid.getRowBits( first, row);
+			long above = grid.getRowBits( first, row - 1);
+			long below = grid.getRowBits( first, row + 1);
+			long aboveBehind = grid.getRowBits( first - dx, row - 1);
+			long belowBehind = grid.getRowBits( first - dx, row + 1);
+
+			long stop = ~open | (above & ~aboveBehind) | (below & ~belowBehind);
+
+			if( row == goalRow && goalCol >= first && goalCol < first + 64) {
+				stop |= 1L << (goalCol - first);
+			}
+
+			if( stop != 0) {
+
+				int bit = dx > 0 ? Long.numberOfTrailingZeros( stop) : 63 - Long.numberOfLeadingZeros( stop);
+
+				return (open & (1L << bit)) == 0 ? -1 : grid.index( first + bit, row);
+			}
+
+			col += 64 * dx;
+		}
+	}
+
+	/**
+	 * Vertical {@link #jump(SearchGrid, int, int, int, int, int, int)}, 64 cells at a time.
+	 */
+	private int jumpVertical( BitGrid grid, int col, int row, int dy, int goalCol, int goalRow) {
+
+		while( true) {
+
+			int first = dy > 0 ? row : row - 63;
+
+			long open = grid.getColumnBits( col, first);
+			long left = grid.getColumnBits( col - 1, first);
+			long right = grid.getColumnBits( col + 1, first);
+			long leftBehind = grid.getColumnBits( col - 1, first - dy);
+			long rightBehind = grid.getColumnBits( col + 1, first - dy);
+
+			long stop = ~open | (left & ~leftBehind) | (right & ~rightBehind);
+
+			if( col == goalCol && goalRow >= first && goalRow < first + 64) {
+				stop |= 1L << (goalRow - first);
+			}
+
+			if( stop != 0) {
+
+				int bit = dy > 0 ? Long.numberOfTrailingZeros( stop) : 63 - Long.numberOfLeadingZeros( stop);
+
+				return (open & (1L << bit)) == 0 ? -1 : grid.index( col, first + bit);
+			}
+
+			row += 64 * dy;
+		}
+	}
+
+	/**
+	 * Create the final path from the jump points. The cells between two jump points are on a straight or diagonal line.
+	 * The path is from goal to start.
+	 */
+	private int[] expandPath( SearchGrid grid, SearchContext context, int goal) {
+
+		int length = 1;
+		for( int current = goal; context.getParent( current) != -1; current = context.getParent( current)) {
+			int parent = context.getParent( current);
+			length += Math.max( Math.abs( grid.col( current) - grid.col( parent)), Math.abs( grid.row( current) - grid.row( parent)));
+		}
+
+		int[] totalPath = new int[ length];
+
+		int i = 0;
+		int current = goal;
+
+		while( context.getParent( current) != -1) {
+
+			int parent = context.getParent( current);
+			int dx = Integer.signum( grid.col( parent) - grid.col( current));
+			int dy = Integer.signum( grid.row( parent) - grid.row( current));
+			int step = dy * grid.getCols() + dx;
+
+			for( int cell = current; cell != parent; cell += step) {
+				totalPath[i++] = cell;
+			}
+
+			current = parent;
+		}
+
+		// start cell
+		totalPath[i] = current;
+
+		return totalPath;
+	}
+
+	private boolean isTraversable( SearchGrid grid, int col, int row) {
+		return col >= 0 && col < grid.getCols() && row >= 0 && row < grid.getRows() && grid.isTraversable( grid.index( col, row));
+	}
+
+	private static int bit( int dx, int dy) {
+		return 1 << DIRECTIONS[ (dy + 1) * 3 + (dx + 1)];
+	}
+
+	/**
+	 * Cost of a straight or diagonal line between two cells.
+	 */
+	private float octileDistance( SearchGrid grid, int from, int to) {
+		return Heuristic.OCTILE.estimate( Math.abs( grid.col( from) - grid.col( to)), Math.abs( grid.row( from) - grid.row( to)));
+	}
+
+	/**
+	 * Octile distance, the tightest heuristic for 8-connected grids, see {@link Heuristic#OCTILE}.
+	 */
+	private float heuristicCostEstimate( SearchGrid grid, int from, int to) {
+		return octileDistance( grid, from, to);
+	}
+}
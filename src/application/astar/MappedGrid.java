@@ -0,0 +1,233 @@
+package application.astar;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Grid which stores its cells in a memory-mapped file instead of the heap.
+ *
+ * Opening a file only maps it, the pages are loaded by the operating system when the search touches them.
+ * Startup is therefore independent of the map size and the heap only holds the buffers, so there's no GC pressure from the cells.
+ * The neighbor masks are computed on access instead of being stored.
+ *
+ * File layout, big endian: magic, format version, cols, rows (4 ints), followed by one byte per cell in row-major order.
+ * The byte is the cost weight of the cell minus 1 (0..254 for weight 1..255), {@link #BLOCKED} for an obstacle.
+ * The lowest possible weight is 1, so {@link #getMinCost()} needn't scan the file.
+ * A new file is all zero, i. e. all cells are traversable with cost 1, and can be sparse on disk.
+ *
+ * The file is mapped in chunks because a single {@link MappedByteBuffer} is limited to 2 GB.
+ * The number of cells is limited by the int cell index of the search engines.
+ */
+public class MappedGrid implements SearchGrid {
+
+	static final int MAGIC = 0x41475244; // "AGRD"
+
+	static final int FORMAT_VERSION = 1;
+
+	static final int HEADER_SIZE = 16;
+
+	/**
+	 * Cell value of an obstacle.
+	 */
+	public static final byte BLOCKED = (byte) 0xFF;
+
+	/**
+	 * Size of one mapped chunk as power of two, 1 GB.
+	 */
+	static final int CHUNK_BITS = 30;
+
+	static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	int cols;
+	int rows;
+
+	/**
+	 * The mapped chunks of the file, header included.
+	 */
+	MappedByteBuffer[] chunks;
+
+	boolean writable;
+
+	long version;
+
+	private MappedGrid( int cols, int rows, MappedByteBuffer[] chunks, boolean writable) {
+		this.cols = cols;
+		this.rows = rows;
+		this.chunks = chunks;
+		this.writable = writable;
+	}
+
+	/**
+	 * Create a new grid file in which all cells are traversable with cost 1, and map it writable.
+	 */
+	public static MappedGrid create( Path file, int cols, int rows) throws IOException {
+
+		checkSize( cols, rows);
+
+		try( RandomAccessFile raf = new RandomAccessFile( file.toFile(), "rw")) {
+
+			raf.setLength( 0);
+			raf.setLength( HEADER_SIZE + (long) cols * rows);
+
+			raf.writeInt( MAGIC);
+			raf.writeInt( FORMAT_VERSION);
+			raf.writeInt( cols);
+			raf.writeInt( rows);
+		}
+
+		return open( file, true);
+	}
+
+	/**
+	 * Map an existing grid file. Changes of a writable grid are written to the file.
+	 */
+	public static MappedGrid open( Path file, boolean writable) throws IOException {
+
+		try( RandomAccessFile raf = new RandomAccessFile( file.toFile(), writable ? "rw" : "r")) {
+
+			if( raf.length() < HEADER_SIZE || raf.readInt() != MAGIC) {
+				throw new IOException( "Not a grid file: " + file);
+			}
+
+			int formatVersion = raf.readInt();
+			if( formatVersion != FORMAT_VERSION) {
+				throw new IOException( "Unsupported grid file version " + formatVersion + ": " + file);
+			}
+
+			int cols = raf.readInt();
+			int rows = raf.readInt();
+
+			checkSize( cols, rows);
+
+			long size = HEADER_SIZE + (long) cols * rows;
+			if( raf.length() < size) {
+				throw new IOException( "Grid file too short, expected " + size + " bytes: " + file);
+			}
+
+			// the mapping stays valid after the channel is closed
+			FileChannel channel = raf.getChannel();
+
+			MappedByteBuffer[] chunks = new MappedByteBuffer[ (int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+
+			for( int i = 0; i < chunks.length; i++) {
+				long position = (long) i << CHUNK_BITS;
+				chunks[i] = channel.map( writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, position, Math.min( 1L << CHUNK_BITS, size - position));
+			}
+
+			return new MappedGrid( cols, rows, chunks, writable);
+		}
+	}
+
+	private static void checkSize( int cols, int rows) {
+		if( cols <= 0 || rows <= 0 || (long) cols * rows > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException( "Invalid grid size " + cols + " x " + rows);
+		}
+	}
+
+	@Override
+	public int getCols() {
+		return cols;
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getCellCount() {
+		return cols * rows;
+	}
+
+	@Override
+	public boolean isTraversable( int index) {
+		return get( index) != BLOCKED;
+	}
+
+	/**
+	 * Cost weight of a cell, 1..255. Only valid for traversable cells.
+	 */
+	@Override
+	public float getCost( int index) {
+		return (get( index) & 0xFF) + 1;
+	}
+
+	/**
+	 * Set the cost weight of a cell, 1..255. The cell becomes traversable.
+	 */
+	public void setCost( int col, int row, int cost) {
+
+		if( cost < 1 || cost > 255) {
+			throw new IllegalArgumentException( "Cost out of range 1..255: " + cost);
+		}
+
+		set( index( col, row), (byte) (cost - 1));
+	}
+
+	@Override
+	public void setTraversable( int col, int row, boolean isTraversable) {
+
+		int index = index( col, row);
+
+		if( isTraversable( index) != isTraversable) {
+			set( index, isTraversable ? 0 : BLOCKED);
+		}
+	}
+
+	@Override
+	public int getNeighborMask( int index, boolean allowDiagonals) {
+
+		int col = col( index);
+		int row = row( index);
+
+		int mask = 0;
+
+		for( int direction = 0; direction < 8; direction++) {
+
+			int neighborCol = col + NeighborMask.COLS[direction];
+			int neighborRow = row + NeighborMask.ROWS[direction];
+
+			if( neighborCol >= 0 && neighborCol < cols && neighborRow >= 0 && neighborRow < rows && isTraversable( index( neighborCol, neighborRow))) {
+				mask |= 1 << direction;
+			}
+		}
+
+		return NeighborMask.removeCornerCutting( mask) & NeighborMask.directions( allowDiagonals);
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Write the changes to the file.
+	 */
+	public void force() {
+		for( MappedByteBuffer chunk: chunks) {
+			chunk.force();
+		}
+	}
+
+	private byte get( int index) {
+		long position = HEADER_SIZE + (long) index;
+		return chunks[ (int) (position >>> CHUNK_BITS)].get( (int) (position & CHUNK_MASK));
+	}
+
+	private void set( int index, byte value) {
+
+		if( !writable) {
+			throw new UnsupportedOperationException( "Grid is mapped read-only");
+		}
+
+		long position = HEADER_SIZE + (long) index;
+		ByteBuffer chunk = chunks[ (int) (position >>> CHUNK_BITS)];
+		chunk.put( (int) (position & CHUNK_MASK), value);
+
+		version++;
+	}
+}
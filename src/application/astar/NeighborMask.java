@@ -0,0 +1,79 @@
+package application.astar;
+
+/**
+ * Neighbor directions of a grid cell. The reachable neighbors of a cell are stored as a bit mask with one bit per direction,
+ * so they can be iterated without allocating anything:
+ *
+ * <pre>
+ * while( mask != 0) {
+ *     int direction = Integer.numberOfTrailingZeros( mask);
+ *     mask &amp;= mask - 1;
+ *     ...
+ * }
+ * </pre>
+ *
+ * The order of the directions is the same as the order of the cells in {@link AStarGrid#getNeighbors(AStarCell, boolean)}.
+ */
+public final class NeighborMask {
+
+	public static final int TOP = 0;
+	public static final int BOTTOM = 1;
+	public static final int LEFT = 2;
+	public static final int RIGHT = 3;
+	public static final int TOP_LEFT = 4;
+	public static final int BOTTOM_RIGHT = 5;
+	public static final int TOP_RIGHT = 6;
+	public static final int BOTTOM_LEFT = 7;
+
+	/**
+	 * Mask of the top/bottom/left/right directions.
+	 */
+	public static final int ORTHOGONAL = 0x0F;
+
+	/**
+	 * Mask of all directions.
+	 */
+	public static final int ALL = 0xFF;
+
+	/**
+	 * Column and row offsets per direction.
+	 */
+	public static final int[] COLS = { 0, 0, -1, 1, -1, 1, 1, -1};
+	public static final int[] ROWS = { -1, 1, 0, 0, -1, 1, -1, 1};
+
+	private NeighborMask() {
+	}
+
+	public static boolean isDiagonal( int direction) {
+		return direction >= TOP_LEFT;
+	}
+
+	/**
+	 * Mask of the directions which are used with or without diagonals.
+	 */
+	public static int directions( boolean allowDiagonals) {
+		return allowDiagonals ? ALL : ORTHOGONAL;
+	}
+
+	/**
+	 * Remove the diagonal directions which would cut a corner: a diagonal step is only allowed
+	 * if both orthogonal cells next to it are traversable.
+	 */
+	public static int removeCornerCutting( int mask) {
+
+		if( (mask & (1 << TOP)) == 0) {
+			mask &= ~(1 << TOP_LEFT | 1 << TOP_RIGHT);
+		}
+		if( (mask & (1 << BOTTOM)) == 0) {
+			mask &= ~(1 << BOTTOM_LEFT | 1 << BOTTOM_RIGHT);
+		}
+		if( (mask & (1 << LEFT)) == 0) {
+			mask &= ~(1 << TOP_LEFT | 1 << BOTTOM_LEFT);
+		}
+		if( (mask & (1 << RIGHT)) == 0) {
+			mask &= ~(1 << TOP_RIGHT | 1 << BOTTOM_RIGHT);
+		}
+
+		return mask;
+	}
+}
@@ -0,0 +1,205 @@
+package application.astar;
+
+import java.util.Arrays;
+
+/**
+ * Compact grid for the primitive A* engine. A cell is addressed by its row-major index (row * cols + col)
+ * and the traversability of all cells is stored in a single contiguous array instead of one object per cell.
+ */
+public class PackedGrid implements SearchGrid {
+
+	int cols;
+	int rows;
+
+	/**
+	 * Traversability per cell index.
+	 */
+	boolean[] traversable;
+
+	/**
+	 * Precomputed {@link NeighborMask} of the traversable neighbors per cell index, including the diagonals without corner cutting.
+	 * Kept up to date by {@link #setTraversable(int, int, boolean)}.
+	 */
+	byte[] neighbors;
+
+	/**
+	 * Index offset of a neighbor per {@link NeighborMask} direction.
+	 */
+	int[] offsets = new int[8];
+
+	/**
+	 * Cost weight per cell index, null as long as all weights are 1.
+	 */
+	float[] costs;
+
+	/**
+	 * Lowest weight ever set. It doesn't increase when the cell with the lowest weight changes, a lower bound is sufficient for the heuristic.
+	 */
+	float minCost = 1f;
+
+	/**
+	 * Number of changes, increased by every {@link #setTraversable(int, int, boolean)} and {@link #setCost(int, int, float)}.
+	 */
+	long version;
+
+	public PackedGrid( int cols, int rows) {
+		this.cols = cols;
+		this.rows = rows;
+		traversable = new boolean[ cols * rows];
+		neighbors = new byte[ cols * rows];
+
+		for( int direction = 0; direction < 8; direction++) {
+			offsets[direction] = NeighborMask.ROWS[direction] * cols + NeighborMask.COLS[direction];
+		}
+	}
+
+	/**
+	 * Copy the traversability of an existing A* grid.
+	 */
+	public PackedGrid( AStarGrid<?> grid) {
+
+		this( grid.cols, grid.rows);
+
+		for( int row=0; row < rows; row++) {
+			for( int col=0; col < cols; col++) {
+				traversable[ index( col, row)] = grid.gridCells[row][col].isTraversable;
+
+				float cost = grid.costs[ index( col, row)];
+				if( cost != 1f && traversable[ index( col, row)]) {
+					setCost( col, row, cost);
+				}
+			}
+		}
+
+		for( int row=0; row < rows; row++) {
+			for( int col=0; col < cols; col++) {
+				updateNeighborMask( col, row);
+			}
+		}
+	}
+
+	/**
+	 * Copy of another packed grid, e. g. for a search on another thread while the original is being edited.
+	 */
+	public PackedGrid( PackedGrid grid) {
+
+		this( grid.cols, grid.rows);
+
+		traversable = grid.traversable.clone();
+		neighbors = grid.neighbors.clone();
+		costs = grid.costs != null ? grid.costs.clone() : null;
+		minCost = grid.minCost;
+		version = grid.version;
+	}
+
+	public int index( int col, int row) {
+		return row * cols + col;
+	}
+
+	public int col( int index) {
+		return index % cols;
+	}
+
+	public int row( int index) {
+		return index / cols;
+	}
+
+	public boolean isTraversable( int index) {
+		return traversable[index];
+	}
+
+	/**
+	 * Change the traversability of a cell and update the neighbor masks of the surrounding cells.
+	 */
+	public void setTraversable( int col, int row, boolean isTraversable) {
+
+		traversable[ index( col, row)] = isTraversable;
+		version++;
+
+		for( int neighborRow = Math.max( row - 1, 0); neighborRow <= Math.min( row + 1, rows - 1); neighborRow++) {
+			for( int neighborCol = Math.max( col - 1, 0); neighborCol <= Math.min( col + 1, cols - 1); neighborCol++) {
+				updateNeighborMask( neighborCol, neighborRow);
+			}
+		}
+	}
+
+	@Override
+	public float getCost( int index) {
+		return costs == null ? 1f : costs[index];
+	}
+
+	/**
+	 * Set the cost weight of a cell. Weights must be positive.
+	 */
+	@Override
+	public void setCost( int col, int row, float cost) {
+
+		if( !(cost > 0f)) {
+			throw new IllegalArgumentException( "Cost weight must be positive: " + cost);
+		}
+
+		if( costs == null) {
+			if( cost == 1f) {
+				return;
+			}
+			costs = new float[ traversable.length];
+			Arrays.fill( costs, 1f);
+		}
+
+		costs[ index( col, row)] = cost;
+		minCost = Math.min( minCost, cost);
+		version++;
+	}
+
+	@Override
+	public float getMinCost() {
+		return minCost;
+	}
+
+	/**
+	 * Get the traversable neighbors of a cell as bit mask of {@link NeighborMask} directions.
+	 */
+	public int getNeighborMask( int index, boolean allowDiagonals) {
+		return neighbors[index] & NeighborMask.directions( allowDiagonals);
+	}
+
+	/**
+	 * Index of the neighbor of a cell in the given {@link NeighborMask} direction.
+	 */
+	public int getNeighbor( int index, int direction) {
+		return index + offsets[direction];
+	}
+
+	private void updateNeighborMask( int col, int row) {
+
+		int mask = 0;
+
+		for( int direction = 0; direction < 8; direction++) {
+
+			int neighborCol = col + NeighborMask.COLS[direction];
+			int neighborRow = row + NeighborMask.ROWS[direction];
+
+			if( neighborCol >= 0 && neighborCol < cols && neighborRow >= 0 && neighborRow < rows && traversable[ index( neighborCol, neighborRow)]) {
+				mask |= 1 << direction;
+			}
+		}
+
+		neighbors[ index( col, row)] = (byte) NeighborMask.removeCornerCutting( mask);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCellCount() {
+		return traversable.length;
+	}
+}
@@ -0,0 +1,272 @@
+package application.astar;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache in front of a {@link PathFinder} for queries which repeat between map edits.
+ *
+ * The entries are keyed by start, goal and neighbor mode and belong to one {@link PackedGrid#getVersion() grid version}.
+ * Changes made through {@link #setTraversable(int, int, boolean)} and {@link #setCost(int, int, float)} carry the remaining entries over to the new version.
+ * Changes made to the grid directly can't be attributed to a region, the cache drops all entries when it notices them.
+ *
+ * A change of one cell drops only the entries whose region contains the cell or one of its neighbors. The region of a path with cost C
+ * consists of the cells x with h(start, x) + h(x, goal) <= C, where h is the {@link Heuristic#EUCLIDEAN euclidian distance} times the lowest cost weight of the grid:
+ * every cell of the path lies in it and, since h never overestimates, so does every cell of a cheaper path. Changes outside of the region can neither block the path nor open a shorter one.
+ * Blocking a cell never creates a path, so entries without a path only depend on cells which become traversable. Cost weights don't decide
+ * whether there is a path, a changed weight only drops the entries with a path.
+ *
+ * The costs are those of the {@link StepCost#OCTILE octile} step lengths, the wrapped path finder must use them as well (the default of all engines).
+ *
+ * The least recently used entry is evicted when the cache is full. The returned paths are shared, they must not be modified.
+ * One instance belongs to one grid and is not thread-safe.
+ */
+public class PathCache implements PathFinder {
+
+	/**
+	 * Margin of the region test. A changed cell changes the moves between all of its neighbors (corner-cutting rule),
+	 * each neighbor is at most sqrt(2) away from it.
+	 */
+	static final float MARGIN = 2 * StepCost.SQRT2;
+
+	/**
+	 * Tolerance for the float path costs.
+	 */
+	static final float EPSILON = 1e-3f;
+
+	PathFinder pathFinder;
+	SearchGrid grid;
+	int capacity;
+
+	/**
+	 * Grid version the entries belong to. A different version of the grid means that it has been changed without the cache.
+	 */
+	long gridVersion;
+
+	/**
+	 * Entries in access order, the eldest entry is the least recently used one.
+	 */
+	LinkedHashMap<Long, CachedPath> entries;
+
+	long hits;
+	long misses;
+	long evictions;
+
+	public PathCache( PathFinder pathFinder, SearchGrid grid, int capacity) {
+
+		this.pathFinder = pathFinder;
+		this.grid = grid;
+		this.capacity = capacity;
+		this.gridVersion = grid.getVersion();
+
+		entries = new LinkedHashMap<Long, CachedPath>( 16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<Long, CachedPath> eldest) {
+				if( size() > PathCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Find a path from start to goal on the grid of the cache, see {@link #findPath(SearchGrid, SearchContext, int, int, boolean)}.
+	 */
+	public int[] findPath( int start, int goal, boolean allowDiagonals) {
+		return findPath( grid, SearchContext.forCurrentThread( grid.getCellCount()), start, goal, allowDiagonals);
+	}
+
+	/**
+	 * Return the cached path or find it with the wrapped path finder and cache it.
+	 * The path is from goal to start, empty if there is none.
+	 */
+	@Override
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals) {
+
+		if( grid != this.grid) {
+			throw new IllegalArgumentException( "Path cache belongs to another grid");
+		}
+
+		if( grid.getVersion() != gridVersion) {
+			// changed behind the back of the cache
+			clear();
+		}
+
+		Long key = key( start, goal, allowDiagonals);
+
+		CachedPath entry = entries.get( key);
+
+		if( entry != null) {
+			hits++;
+			return entry.path;
+		}
+
+		misses++;
+
+		int[] path = pathFinder.findPath( grid, context, start, goal, allowDiagonals);
+
+		entries.put( key, new CachedPath( path, pathCost( path)));
+
+		return path;
+	}
+
+	/**
+	 * Paths on an object grid aren't cached, they are found by the wrapped path finder.
+	 */
+	@Override
+	@SuppressWarnings( "rawtypes")
+	public List<AStarCell> getPath( AStarGrid grid, AStarCell start, AStarCell goal, boolean allowDiagonals) {
+		return pathFinder.getPath( grid, start, goal, allowDiagonals);
+	}
+
+	/**
+	 * Change the traversability of a cell in the grid and drop the entries whose region contains the cell.
+	 */
+	public void setTraversable( int col, int row, boolean isTraversable) {
+
+		if( grid.getVersion() != gridVersion) {
+			clear();
+		}
+
+		if( grid.isTraversable( grid.index( col, row)) == isTraversable) {
+			return;
+		}
+
+		grid.setTraversable( col, row, isTraversable);
+		gridVersion = grid.getVersion();
+
+		invalidate( col, row, isTraversable);
+	}
+
+	/**
+	 * Change the cost weight of a cell in the grid and drop the entries whose region contains the cell:
+	 * a cheaper cell can shorten the paths around it, a more expensive one lengthens the paths through it.
+	 */
+	public void setCost( int col, int row, float cost) {
+
+		if( grid.getVersion() != gridVersion) {
+			clear();
+		}
+
+		if( grid.getCost( grid.index( col, row)) == cost) {
+			return;
+		}
+
+		grid.setCost( col, row, cost);
+		gridVersion = grid.getVersion();
+
+		invalidate( col, row, false);
+	}
+
+	/**
+	 * Drop the entries whose region contains the changed cell, and the entries without a path if the cell has been opened.
+	 * The region test uses the lowest cost weight after the change.
+	 */
+	private void invalidate( int col, int row, boolean isOpened) {
+
+		Iterator<Map.Entry<Long, CachedPath>> it = entries.entrySet().iterator();
+
+		while( it.hasNext()) {
+
+			Map.Entry<Long, CachedPath> mapEntry = it.next();
+			CachedPath entry = mapEntry.getValue();
+
+			if( entry.path.length == 0) {
+				// no path: only an opened cell can connect start and goal
+				if( isOpened) {
+					it.remove();
+				}
+				continue;
+			}
+
+			int start = entry.path[ entry.path.length - 1];
+			int goal = entry.path[0];
+
+			if( (distance( col, row, start) + distance( col, row, goal) - MARGIN) * grid.getMinCost() <= entry.cost + EPSILON) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drop all entries, e. g. after the grid has been changed without the cache.
+	 */
+	public void clear() {
+		entries.clear();
+		gridVersion = grid.getVersion();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Start, goal and neighbor mode in one key. The goal is shifted by one bit, the cell indices are never negative.
+	 */
+	private Long key( int start, int goal, boolean allowDiagonals) {
+		return ((long) start << 32) | ((long) goal << 1) | (allowDiagonals ? 1 : 0);
+	}
+
+	/**
+	 * Sum of the step costs along a path (octile step length times mean cost weight), infinite for an empty path.
+	 */
+	private float pathCost( int[] path) {
+
+		if( path.length == 0) {
+			return Float.POSITIVE_INFINITY;
+		}
+
+		float cost = 0f;
+
+		for( int i = 1; i < path.length; i++) {
+			float length = grid.col( path[i]) != grid.col( path[i-1]) && grid.row( path[i]) != grid.row( path[i-1]) ? StepCost.SQRT2 : 1f;
+			cost += length * (grid.getCost( path[i]) + grid.getCost( path[i-1])) / 2f;
+		}
+
+		return cost;
+	}
+
+	/**
+	 * Euclidian distance between a cell and a cell index, it never overestimates the octile path length.
+	 */
+	private float distance( int col, int row, int index) {
+		return Heuristic.EUCLIDEAN.estimate( Math.abs( col - grid.col( index)), Math.abs( row - grid.row( index)));
+	}
+
+	/**
+	 * Cached path with its cost.
+	 */
+	static class CachedPath {
+
+		int[] path;
+		float cost;
+
+		CachedPath( int[] path, float cost) {
+			this.path = path;
+			this.cost = cost;
+		}
+	}
+}
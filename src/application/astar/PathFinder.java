@@ -0,0 +1,63 @@
+package application.astar;
+
+import java.util.List;
+
+/**
+ * A path finding algorithm which works on the cell indices of a {@link SearchGrid}.
+ * Implementations keep their search state in the given {@link SearchContext}, so one instance can be used by several threads
+ * as long as every thread uses its own context.
+ */
+public interface PathFinder {
+
+	/**
+	 * Find a path from start to goal.
+	 * The result contains the cell indices of the path from goal to start; it is empty if there is no path.
+	 * The context keeps the search state until it is used for the next search.
+	 */
+	int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals);
+
+	/**
+	 * Find a path from start to goal within a budget, see {@link SearchResult} for the possible outcomes.
+	 * Implementations which can't be interrupted ignore the budget, they only check the cancellation token before they start.
+	 */
+	default SearchResult search( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals, SearchBudget budget) {
+
+		if( budget.getCancellationToken() != null && budget.getCancellationToken().isCancelled()) {
+			return new SearchResult( SearchResult.Status.CANCELLED, new int[0], 0);
+		}
+
+		long startTime = System.nanoTime();
+
+		int[] path = findPath( grid, context, start, goal, allowDiagonals);
+
+		return new SearchResult( path.length > 0 ? SearchResult.Status.FOUND : SearchResult.Status.NO_PATH, path, 0, 0, 0, 0, 0, Double.NaN, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Heuristic of the searches in the given neighbor mode, by default {@link Heuristic#forConnectivity(boolean)}.
+	 */
+	default Heuristic getHeuristic( boolean allowDiagonals) {
+		return Heuristic.forConnectivity( allowDiagonals);
+	}
+
+	/**
+	 * Step costs of the searches in the given neighbor mode, by default {@link StepCost#forConnectivity(boolean)}.
+	 */
+	default StepCost getStepCost( boolean allowDiagonals) {
+		return StepCost.forConnectivity( allowDiagonals);
+	}
+
+	/**
+	 * Convenience method with the same contract as {@link AStarAlgorithm#getPath(AStarGrid, AStarCell, AStarCell, boolean)}.
+	 * The f,g,h values are set on the cells of the path, with the heuristic and step costs of this path finder.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	default List<AStarCell> getPath( AStarGrid grid, AStarCell start, AStarCell goal, boolean allowDiagonals) {
+
+		PackedGrid packedGrid = new PackedGrid( grid);
+
+		int[] path = findPath( packedGrid, SearchContext.forCurrentThread( packedGrid.getCellCount()), grid.index( start), grid.index( goal), allowDiagonals);
+
+		return grid.getCells( path, getHeuristic( allowDiagonals), getStepCost( allowDiagonals));
+	}
+}
@@ -0,0 +1,89 @@
+package application.astar;
+
+/**
+ * Limits of a search: the maximum number of expanded cells, the maximum wall time and a token to cancel it from another thread.
+ * If a limit is reached the search stops and returns a partial path, see {@link SearchResult}.
+ *
+ * The clock and the token are checked every {@link #CHECK_INTERVAL} expansions, so they cost nearly nothing per expansion.
+ */
+public class SearchBudget {
+
+	/**
+	 * The search runs until it finds the goal or the open set is empty.
+	 */
+	public static final SearchBudget UNLIMITED = new SearchBudget( Long.MAX_VALUE, Long.MAX_VALUE, null);
+
+	static final int CHECK_INTERVAL = 256;
+
+	long maxExpansions;
+	long maxTime;
+	CancellationToken cancellationToken;
+
+	/**
+	 * @param maxExpansions maximum number of expanded cells
+	 * @param maxTime maximum time in nanoseconds
+	 * @param cancellationToken token which stops the search, may be null
+	 */
+	public SearchBudget( long maxExpansions, long maxTime, CancellationToken cancellationToken) {
+
+		if( maxExpansions < 0 || maxTime < 0) {
+			throw new IllegalArgumentException( "Budget must not be negative: " + maxExpansions + " expansions, " + maxTime + " ns");
+		}
+
+		this.maxExpansions = maxExpansions;
+		this.maxTime = maxTime;
+		this.cancellationToken = cancellationToken;
+	}
+
+	public static SearchBudget ofExpansions( long maxExpansions) {
+		return new SearchBudget( maxExpansions, Long.MAX_VALUE, null);
+	}
+
+	public static SearchBudget ofTime( long maxTime) {
+		return new SearchBudget( Long.MAX_VALUE, maxTime, null);
+	}
+
+	public static SearchBudget of( CancellationToken cancellationToken) {
+		return new SearchBudget( Long.MAX_VALUE, Long.MAX_VALUE, cancellationToken);
+	}
+
+	public long getMaxExpansions() {
+		return maxExpansions;
+	}
+
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	public CancellationToken getCancellationToken() {
+		return cancellationToken;
+	}
+
+	/**
+	 * Check the budget before the next expansion.
+	 *
+	 * @param expansions number of cells expanded so far
+	 * @param startTime value of {@link System#nanoTime()} at the start of the search
+	 * @return BUDGET_EXHAUSTED or CANCELLED if the search has to stop, null otherwise
+	 */
+	SearchResult.Status check( long expansions, long startTime) {
+
+		if( expansions >= maxExpansions) {
+			return SearchResult.Status.BUDGET_EXHAUSTED;
+		}
+
+		if( expansions % CHECK_INTERVAL != 0 || this == UNLIMITED) {
+			return null;
+		}
+
+		if( cancellationToken != null && cancellationToken.isCancelled()) {
+			return SearchResult.Status.CANCELLED;
+		}
+
+		if( maxTime != Long.MAX_VALUE && System.nanoTime() - startTime >= maxTime) {
+			return SearchResult.Status.BUDGET_EXHAUSTED;
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,229 @@
+package application.astar;
+
+import java.util.Arrays;
+
+/**
+ * Search state of the A* algorithm per cell index: g score, parent index and open/closed state, plus the open set.
+ * A context can be reused for any number of searches. Instead of clearing the arrays before each search,
+ * a generation counter is increased; cells which were stamped with an older generation count as unvisited.
+ * That way a search doesn't allocate anything except the result path.
+ * The cells which have been stamped in the current search are listed as well, so they can be visited without looking at all cells.
+ *
+ * A context must only be used by one search at a time. Either hold one per thread (see {@link #forCurrentThread(int)})
+ * or take them from a pool.
+ */
+public class SearchContext {
+
+	public static final byte UNVISITED = 0;
+	public static final byte OPEN = 1;
+	public static final byte CLOSED = 2;
+
+	private static final ThreadLocal<SearchContext> THREAD_CONTEXT = ThreadLocal.withInitial( () -> new SearchContext( 0));
+
+	/**
+	 * Cost from start along best known path, per cell index.
+	 */
+	float[] g;
+
+	/**
+	 * Index of the cell we came from, per cell index. -1 for the start cell.
+	 */
+	int[] parent;
+
+	/**
+	 * OPEN or CLOSED per cell index, only valid if the stamp of the cell is the current generation.
+	 */
+	byte[] state;
+
+	/**
+	 * Generation in which the cell has been visited.
+	 */
+	int[] stamp;
+
+	int generation;
+
+	/**
+	 * Cells stamped with the current generation, in the order of their first stamp. The first visitedCount are valid.
+	 */
+	int[] visited;
+	int visitedCount;
+
+	/**
+	 * Open set, keyed by cell index.
+	 */
+	IndexedHeap openSet;
+
+	/**
+	 * Open set for integer keys, created on demand, see {@link #getBucketQueue(int)}.
+	 */
+	BucketQueue bucketQueue;
+
+	/**
+	 * Second context for searches which run from both ends, created on demand.
+	 */
+	SearchContext reverse;
+
+	public SearchContext( int capacity) {
+		allocate( capacity);
+	}
+
+	/**
+	 * Get the context of the current thread, it is grown if it can't hold the given number of cells.
+	 */
+	public static SearchContext forCurrentThread( int cellCount) {
+		SearchContext context = THREAD_CONTEXT.get();
+		context.ensureCapacity( cellCount);
+		return context;
+	}
+
+	/**
+	 * Start a new search: all cells become unvisited and the open set is emptied.
+	 */
+	public void begin( int cellCount) {
+
+		ensureCapacity( cellCount);
+
+		// on overflow the stamps have to be reset once, otherwise cells of an old generation could become valid again
+		if( ++generation == 0) {
+			Arrays.fill( stamp, 0);
+			generation = 1;
+		}
+
+		openSet.clear();
+		visitedCount = 0;
+
+		if( bucketQueue != null) {
+			bucketQueue.clear();
+		}
+	}
+
+	public void ensureCapacity( int cellCount) {
+		if( cellCount > stamp.length) {
+			allocate( cellCount);
+		}
+	}
+
+	public int getCapacity() {
+		return stamp.length;
+	}
+
+	public byte getState( int index) {
+		return stamp[index] == generation ? state[index] : UNVISITED;
+	}
+
+	public boolean isClosed( int index) {
+		return stamp[index] == generation && state[index] == CLOSED;
+	}
+
+	/**
+	 * Number of cells which have been opened or closed in the current search.
+	 */
+	public int getVisitedCount() {
+		return visitedCount;
+	}
+
+	/**
+	 * Cell index of a cell which has been opened or closed in the current search, 0 <= i < {@link #getVisitedCount()}.
+	 */
+	public int getVisited( int i) {
+		return visited[i];
+	}
+
+	/**
+	 * Set the g score and parent of a cell and mark it as open. The cell isn't added to the open set.
+	 */
+	public void open( int index, float g, int parent) {
+		visit( index);
+		this.g[index] = g;
+		this.parent[index] = parent;
+		this.state[index] = OPEN;
+		this.stamp[index] = generation;
+	}
+
+	/**
+	 * Update the g score and parent of an already visited cell.
+	 */
+	public void update( int index, float g, int parent) {
+		this.g[index] = g;
+		this.parent[index] = parent;
+	}
+
+	public void close( int index) {
+		visit( index);
+		state[index] = CLOSED;
+		stamp[index] = generation;
+	}
+
+	/**
+	 * List the cell if it is stamped for the first time in the current search.
+	 */
+	private void visit( int index) {
+		if( stamp[index] != generation) {
+			visited[ visitedCount++] = index;
+		}
+	}
+
+	public float getG( int index) {
+		return g[index];
+	}
+
+	public int getParent( int index) {
+		return parent[index];
+	}
+
+	public IndexedHeap getOpenSet() {
+		return openSet;
+	}
+
+	/**
+	 * Get the open set for integer keys, see {@link BucketQueue}. It is created on the first call and replaced if it has less buckets than needed.
+	 */
+	public BucketQueue getBucketQueue( int keyRange) {
+		if( bucketQueue == null || bucketQueue.bucketMask < keyRange) {
+			bucketQueue = new BucketQueue( getCapacity(), keyRange);
+		}
+		return bucketQueue;
+	}
+
+	/**
+	 * Get the context of the backward search of a bidirectional search. It belongs to this context and must be used by the same thread.
+	 */
+	public SearchContext getReverseContext() {
+		if( reverse == null) {
+			reverse = new SearchContext( getCapacity());
+		}
+		return reverse;
+	}
+
+	/**
+	 * Create the path which ends in the given cell by following the parents. The path is from goal to start.
+	 */
+	public int[] reconstructPath( int goal) {
+
+		int length = 0;
+		for( int current = goal; current != -1; current = parent[current]) {
+			length++;
+		}
+
+		int[] totalPath = new int[ length];
+
+		int i = 0;
+		for( int current = goal; current != -1; current = parent[current]) {
+			totalPath[i++] = current;
+		}
+
+		return totalPath;
+	}
+
+	private void allocate( int capacity) {
+		g = new float[ capacity];
+		parent = new int[ capacity];
+		state = new byte[ capacity];
+		stamp = new int[ capacity];
+		visited = new int[ capacity];
+		visitedCount = 0;
+		openSet = new IndexedHeap( capacity);
+		bucketQueue = null;
+		generation = 0;
+	}
+}
@@ -0,0 +1,74 @@
+package application.astar;
+
+/**
+ * Grid as seen by the index based search engines. A cell is addressed by its row-major index (row * cols + col).
+ *
+ * The accessors correspond to {@link AStarGrid#getCell(int, int)} and {@link AStarGrid#getNeighbors(AStarCell, boolean)},
+ * but without an object per cell, so the storage behind them can be an array on the heap ({@link PackedGrid})
+ * or a file outside of it ({@link MappedGrid}).
+ */
+public interface SearchGrid {
+
+	int getCols();
+
+	int getRows();
+
+	int getCellCount();
+
+	default int index( int col, int row) {
+		return row * getCols() + col;
+	}
+
+	default int col( int index) {
+		return index % getCols();
+	}
+
+	default int row( int index) {
+		return index / getCols();
+	}
+
+	boolean isTraversable( int index);
+
+	/**
+	 * Change the traversability of a cell. The neighbor masks of the surrounding cells change with it.
+	 */
+	void setTraversable( int col, int row, boolean isTraversable);
+
+	/**
+	 * Get the traversable neighbors of a cell as bit mask of {@link NeighborMask} directions, without corner cutting.
+	 */
+	int getNeighborMask( int index, boolean allowDiagonals);
+
+	/**
+	 * Index of the neighbor of a cell in the given {@link NeighborMask} direction.
+	 */
+	default int getNeighbor( int index, int direction) {
+		return index + NeighborMask.ROWS[direction] * getCols() + NeighborMask.COLS[direction];
+	}
+
+	/**
+	 * Cost weight of a traversable cell, see {@link TerrainAStarAlgorithm}. Uniform grids have weight 1 everywhere.
+	 */
+	default float getCost( int index) {
+		return 1f;
+	}
+
+	/**
+	 * Change the cost weight of a traversable cell. Grids with fixed or integer weights don't support it.
+	 */
+	default void setCost( int col, int row, float cost) {
+		throw new UnsupportedOperationException( "Grid without float cost weights");
+	}
+
+	/**
+	 * Lower bound of the cost weights of the traversable cells, used to scale the heuristic.
+	 */
+	default float getMinCost() {
+		return 1f;
+	}
+
+	/**
+	 * Number of changes, increased by every {@link #setTraversable(int, int, boolean)}.
+	 */
+	long getVersion();
+}
@@ -0,0 +1,133 @@
+package application.astar;
+
+/**
+ * Result of a search with a {@link SearchBudget}: how the search ended, the path and how much work the search did.
+ *
+ * If the search found the goal, the path leads from the goal to the start. If the budget ran out or the search was cancelled,
+ * the path leads from the expanded cell closest to the goal (lowest heuristic) to the start, so a caller can move on towards the goal.
+ * If there is no path, it is empty. A path from a cell to itself contains that cell, so the status tells whether a path has been found.
+ *
+ * The statistics are counted by the engines which implement {@link PathFinder#search(SearchGrid, SearchContext, int, int, boolean, SearchBudget)}
+ * and by {@link AStarAlgorithm}; the other engines leave the counters at 0 and the cost unknown.
+ */
+public class SearchResult {
+
+	public enum Status {
+
+		/**
+		 * The path reaches the goal.
+		 */
+		FOUND,
+
+		/**
+		 * All reachable cells have been expanded, the goal isn't among them.
+		 */
+		NO_PATH,
+
+		/**
+		 * The maximum number of expansions or the maximum time has been reached, the path is partial.
+		 */
+		BUDGET_EXHAUSTED,
+
+		/**
+		 * The search has been stopped by its {@link CancellationToken}, the path is partial.
+		 */
+		CANCELLED
+	}
+
+	Status status;
+	int[] path;
+	long expansions;
+
+	long generated;
+	int openPeak;
+	long reopenings;
+	long heuristicEvaluations;
+
+	double cost;
+	long nanos;
+
+	public SearchResult( Status status, int[] path, long expansions) {
+		this( status, path, expansions, 0, 0, 0, 0, Double.NaN, 0);
+	}
+
+	public SearchResult( Status status, int[] path, long expansions, long generated, int openPeak, long reopenings, long heuristicEvaluations, double cost, long nanos) {
+		this.status = status;
+		this.path = path;
+		this.expansions = expansions;
+		this.generated = generated;
+		this.openPeak = openPeak;
+		this.reopenings = reopenings;
+		this.heuristicEvaluations = heuristicEvaluations;
+		this.cost = cost;
+		this.nanos = nanos;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isFound() {
+		return status == Status.FOUND;
+	}
+
+	/**
+	 * Cell indices from the goal, or the cell closest to it, to the start.
+	 */
+	public int[] getPath() {
+		return path;
+	}
+
+	/**
+	 * Number of cells which have been expanded.
+	 */
+	public long getExpansions() {
+		return expansions;
+	}
+
+	/**
+	 * Number of cells which have been added to the open set.
+	 */
+	public long getGenerated() {
+		return generated;
+	}
+
+	/**
+	 * Highest number of cells in the open set at the same time.
+	 */
+	public int getOpenPeak() {
+		return openPeak;
+	}
+
+	/**
+	 * Number of closed cells which have been opened again because a cheaper way to them was found.
+	 * 0 for engines which never reopen a cell, with a consistent heuristic there is no need to.
+	 */
+	public long getReopenings() {
+		return reopenings;
+	}
+
+	public long getHeuristicEvaluations() {
+		return heuristicEvaluations;
+	}
+
+	/**
+	 * Cost of the path, infinite if there is none, NaN if the engine doesn't report it.
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Time in nanoseconds which the search took.
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public String toString() {
+		return status + ": " + expansions + " expanded, " + generated + " generated, open peak " + openPeak + ", " + reopenings + " reopened, "
+				+ heuristicEvaluations + " heuristic evaluations, cost " + cost + ", " + nanos / 1_000_000d + " ms";
+	}
+}
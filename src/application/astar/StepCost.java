@@ -0,0 +1,83 @@
+package application.astar;
+
+/**
+ * Cost of a step to a neighbor per {@link NeighborMask} direction, before terrain weights.
+ * The searches look the costs up in a table per direction, see {@link #table()}.
+ *
+ * {@link AStarAlgorithm}, {@link PrimitiveAStarAlgorithm} and {@link TerrainAStarAlgorithm} take the step cost as a strategy.
+ * {@link AnytimeAStarAlgorithm}, {@link BidirectionalAStarAlgorithm}, {@link JumpPointSearchAlgorithm}, {@link HierarchicalPathFinder},
+ * {@link DStarLiteAlgorithm} and {@link PathCache} always use {@link #forConnectivity(boolean)}, i. e. octile step lengths,
+ * {@link BucketAStarAlgorithm} uses integer approximations of them.
+ */
+@FunctionalInterface
+public interface StepCost {
+
+	float SQRT2 = (float) Math.sqrt(2);
+
+	/**
+	 * Cost of a diagonal step beyond the cost of a straight step in {@link #OCTILE}.
+	 */
+	float DIAGONAL_EXTRA = SQRT2 - 1f;
+
+	/**
+	 * Euclidian step length: 1 straight, sqrt(2) diagonal. Use with {@link Heuristic#OCTILE} or {@link Heuristic#MANHATTAN}.
+	 */
+	StepCost OCTILE = new Table( direction -> NeighborMask.isDiagonal( direction) ? SQRT2 : 1f);
+
+	/**
+	 * Every step costs 1, also a diagonal one. Use with {@link Heuristic#CHEBYSHEV}.
+	 */
+	StepCost UNIFORM = new Table( direction -> 1f);
+
+	float cost( int direction);
+
+	/**
+	 * Costs of all 8 directions, indexed by direction. A new table per call, except for a {@link Table} which returns its own.
+	 */
+	default float[] table() {
+
+		float[] table = new float[ 8];
+
+		for( int direction = 0; direction < 8; direction++) {
+			table[direction] = cost( direction);
+		}
+
+		return table;
+	}
+
+	/**
+	 * The step costs of the grids: euclidian step lengths. Without diagonals only the straight steps of cost 1 are used.
+	 */
+	static StepCost forConnectivity( boolean allowDiagonals) {
+		return OCTILE;
+	}
+
+	/**
+	 * The step cost with its table computed once, so that a search doesn't allocate one, see {@link Table}.
+	 */
+	static StepCost cached( StepCost stepCost) {
+		return stepCost instanceof Table ? stepCost : new Table( stepCost);
+	}
+
+	/**
+	 * Step cost whose table is computed when it is created. {@link #table()} returns the same array every time, it must not be modified.
+	 */
+	final class Table implements StepCost {
+
+		final float[] costs;
+
+		Table( StepCost stepCost) {
+			costs = stepCost.table();
+		}
+
+		@Override
+		public float cost( int direction) {
+			return costs[direction];
+		}
+
+		@Override
+		public float[] table() {
+			return costs;
+		}
+	}
+}
@@ -0,0 +1,333 @@
+package application.astar;
+
+import java.util.Arrays;
+
+/**
+ * Append-only log of the events of a search, used for visualization of the single steps.
+ *
+ * Instead of copying the open and closed set per step only the changes are recorded: a cell was pushed to the open set,
+ * its g value was updated, or it was popped and closed. The events are stored in primitive arrays, so recording costs
+ * O(events) memory, which is O(expansions * neighbors). The open/closed state and the f,g,h values of any step are
+ * rebuilt on demand, see {@link #getStep(int)}: a cursor keeps the state of the last requested step and only the events between
+ * that step and the requested one are applied or undone, so moving to a neighboring step costs only the events of that step.
+ *
+ * The events must follow the order of {@link AStarAlgorithm}: a cell is pushed once, updated while it is open and popped once.
+ */
+public class StepLog {
+
+	public static final byte PUSH = 0;
+	public static final byte UPDATE = 1;
+	public static final byte POP = 2;
+
+	int cellCount;
+
+	/**
+	 * Type, cell index and g,h values per event. The values are unused for {@link #POP}.
+	 */
+	byte[] types = new byte[ 64];
+	int[] cells = new int[ 64];
+	float[] g = new float[ 64];
+	float[] h = new float[ 64];
+
+	/**
+	 * Previous event of the same cell per event, -1 for the first one. An update is undone with the values of its previous event.
+	 */
+	int[] previous = new int[ 64];
+
+	/**
+	 * Last event per cell index, only valid if it points to an event of the cell in the current log, see {@link #add(byte, int, double, double)}.
+	 */
+	int[] lastEvent = new int[0];
+
+	int size;
+
+	/**
+	 * Number of events at the end of every step.
+	 */
+	int[] stepEnds = new int[ 16];
+
+	int stepCount;
+
+	/**
+	 * State at the end of the events up to the position, returned by {@link #getStep(int)}. Null until the first call.
+	 */
+	Step cursor = null;
+	int position;
+
+	/**
+	 * Remove all events and steps for a new search on a grid with the given number of cells. The arrays are kept.
+	 */
+	public void begin( int cellCount) {
+
+		this.cellCount = cellCount;
+		size = 0;
+		stepCount = 0;
+
+		if( lastEvent.length < cellCount) {
+			lastEvent = new int[ cellCount];
+		}
+
+		if( cursor != null) {
+			cursor.clear();
+		}
+		position = 0;
+	}
+
+	/**
+	 * A cell has been added to the open set.
+	 */
+	public void push( int cell, double g, double h) {
+		add( PUSH, cell, g, h);
+	}
+
+	/**
+	 * A cell in the open set got a lower g value.
+	 */
+	public void update( int cell, double g, double h) {
+		add( UPDATE, cell, g, h);
+	}
+
+	/**
+	 * A cell has been removed from the open set and closed.
+	 */
+	public void pop( int cell) {
+		add( POP, cell, 0d, 0d);
+	}
+
+	/**
+	 * Finish the current step, all events since the previous step belong to it.
+	 */
+	public void endStep() {
+
+		if( stepCount == stepEnds.length) {
+			stepEnds = Arrays.copyOf( stepEnds, stepCount * 2);
+		}
+
+		stepEnds[stepCount++] = size;
+	}
+
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	public int getEventCount() {
+		return size;
+	}
+
+	/**
+	 * Get the state of the search at the end of the given step, 0 <= step < {@link #getStepCount()}.
+	 * The events between the previous and the given step are applied or undone, or replayed from the start if that is shorter.
+	 * The returned step is reused, it is only valid until the next call or the next search.
+	 */
+	public Step getStep( int step) {
+
+		if( cursor == null || cursor.state.length < cellCount) {
+			cursor = new Step( cellCount);
+			position = 0;
+		}
+
+		int end = stepEnds[step];
+
+		// clearing costs the open and closed cells, which are less than the events up to the position
+		if( end < position - end) {
+			cursor.clear();
+			position = 0;
+		}
+
+		while( position < end) {
+			apply( position++);
+		}
+
+		while( position > end) {
+			undo( --position);
+		}
+
+		return cursor;
+	}
+
+	private void apply( int event) {
+
+		int cell = cells[event];
+
+		switch( types[event]) {
+		case PUSH:
+			cursor.open( cell);
+			cursor.g[cell] = g[event];
+			cursor.h[cell] = h[event];
+			break;
+		case UPDATE:
+			cursor.g[cell] = g[event];
+			cursor.h[cell] = h[event];
+			break;
+		default:
+			cursor.close( cell);
+			break;
+		}
+	}
+
+	private void undo( int event) {
+
+		int cell = cells[event];
+
+		switch( types[event]) {
+		case PUSH:
+			cursor.unvisit( cell);
+			break;
+		case UPDATE:
+			cursor.g[cell] = g[ previous[event]];
+			cursor.h[cell] = h[ previous[event]];
+			break;
+		default:
+			cursor.reopen( cell);
+			break;
+		}
+	}
+
+	private void add( byte type, int cell, double g, double h) {
+
+		if( size == types.length) {
+			int capacity = size * 2;
+			types = Arrays.copyOf( types, capacity);
+			cells = Arrays.copyOf( cells, capacity);
+			this.g = Arrays.copyOf( this.g, capacity);
+			this.h = Arrays.copyOf( this.h, capacity);
+			previous = Arrays.copyOf( previous, capacity);
+		}
+
+		// the last event of the cell is left over from an earlier search unless it is an event of the cell in this one
+		int last = lastEvent[cell];
+		previous[size] = last < size && cells[last] == cell ? last : -1;
+		lastEvent[cell] = size;
+
+		types[size] = type;
+		cells[size] = cell;
+		this.g[size] = (float) g;
+		this.h[size] = (float) h;
+		size++;
+	}
+
+	/**
+	 * State of the search at the end of one step.
+	 */
+	public static class Step {
+
+		/**
+		 * {@link SearchContext} state per cell index.
+		 */
+		byte[] state;
+
+		/**
+		 * Values per cell index, only valid for open and closed cells.
+		 */
+		float[] g;
+		float[] h;
+
+		/**
+		 * Open cells with their position in the list per cell index, so a cell is removed in O(1).
+		 */
+		int[] openCells;
+		int[] openPositions;
+		int openCount;
+
+		/**
+		 * Closed cells in the order of their events, the last one is the first to be reopened when events are undone.
+		 */
+		int[] closedCells;
+		int closedCount;
+
+		Step( int cellCount) {
+			state = new byte[ cellCount];
+			g = new float[ cellCount];
+			h = new float[ cellCount];
+			openCells = new int[ cellCount];
+			openPositions = new int[ cellCount];
+			closedCells = new int[ cellCount];
+		}
+
+		public boolean isOpen( int cell) {
+			return state[cell] == SearchContext.OPEN;
+		}
+
+		public boolean isClosed( int cell) {
+			return state[cell] == SearchContext.CLOSED;
+		}
+
+		/**
+		 * Cell indices of the open set.
+		 */
+		public int[] getOpenCells() {
+			return Arrays.copyOf( openCells, openCount);
+		}
+
+		/**
+		 * Cell indices of the closed set.
+		 */
+		public int[] getClosedCells() {
+			return Arrays.copyOf( closedCells, closedCount);
+		}
+
+		public double getF( int cell) {
+			return g[cell] + h[cell];
+		}
+
+		public double getG( int cell) {
+			return g[cell];
+		}
+
+		public double getH( int cell) {
+			return h[cell];
+		}
+
+		private void open( int cell) {
+			state[cell] = SearchContext.OPEN;
+			openPositions[cell] = openCount;
+			openCells[ openCount++] = cell;
+		}
+
+		private void close( int cell) {
+			removeOpen( cell);
+			state[cell] = SearchContext.CLOSED;
+			closedCells[ closedCount++] = cell;
+		}
+
+		/**
+		 * Undo {@link #close(int)}, the cell must be the last closed one.
+		 */
+		private void reopen( int cell) {
+			closedCount--;
+			open( cell);
+		}
+
+		/**
+		 * Undo {@link #open(int)}.
+		 */
+		private void unvisit( int cell) {
+			removeOpen( cell);
+			state[cell] = SearchContext.UNVISITED;
+		}
+
+		private void removeOpen( int cell) {
+
+			// the last open cell takes the place of the removed one
+			int last = openCells[ --openCount];
+			openCells[ openPositions[cell]] = last;
+			openPositions[last] = openPositions[cell];
+		}
+
+		/**
+		 * Make all cells unvisited. Only the open and closed cells are touched.
+		 */
+		private void clear() {
+
+			for( int i = 0; i < openCount; i++) {
+				state[ openCells[i]] = SearchContext.UNVISITED;
+			}
+			for( int i = 0; i < closedCount; i++) {
+				state[ closedCells[i]] = SearchContext.UNVISITED;
+			}
+
+			openCount = 0;
+			closedCount = 0;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package application.astar;
+
+/**
+ * A* engine for grids with terrain costs, see {@link SearchGrid#getCost(int)}.
+ * The cost of a step is its {@link StepCost} (by default the length, 1 or sqrt(2)) times the mean cost weight of both cells, so moves stay symmetric.
+ *
+ * The heuristic is scaled by the lowest cost weight of the grid. A path can't be cheaper than its length
+ * times that weight, so the heuristic never overestimates and the paths are optimal. On a grid with weight 1 everywhere
+ * the search is the same as {@link PrimitiveAStarAlgorithm}, and like there the heuristic and step costs are strategies.
+ */
+public class TerrainAStarAlgorithm implements PathFinder {
+
+	/**
+	 * Context which is used if no context is passed.
+	 */
+	SearchContext context = new SearchContext( 0);
+
+	/**
+	 * Heuristic and step costs, null to choose them by the connectivity of each search.
+	 */
+	Heuristic heuristic;
+	StepCost stepCost;
+
+	public TerrainAStarAlgorithm() {
+		this( null, null);
+	}
+
+	/**
+	 * The step cost is cached, so the searches don't allocate its table.
+	 */
+	public TerrainAStarAlgorithm( Heuristic heuristic, StepCost stepCost) {
+		this.heuristic = heuristic;
+		this.stepCost = stepCost != null ? StepCost.cached( stepCost) : null;
+	}
+
+	@Override
+	public Heuristic getHeuristic( boolean allowDiagonals) {
+		return heuristic != null ? heuristic : Heuristic.forConnectivity( allowDiagonals);
+	}
+
+	@Override
+	public StepCost getStepCost( boolean allowDiagonals) {
+		return stepCost != null ? stepCost : StepCost.forConnectivity( allowDiagonals);
+	}
+
+	/**
+	 * Find a path from start to goal using the context of this algorithm instance.
+	 */
+	public int[] findPath( SearchGrid grid, int start, int goal, boolean allowDiagonals) {
+		return findPath( grid, context, start, goal, allowDiagonals);
+	}
+
+	/**
+	 * Find the cheapest path from start to goal.
+	 */
+	@Override
+	public int[] findPath( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals) {
+		return search( grid, context, start, goal, allowDiagonals, SearchBudget.UNLIMITED).getPath();
+	}
+
+	/**
+	 * Find the cheapest path from start to goal, stop when the budget is used up.
+	 */
+	@Override
+	public SearchResult search( SearchGrid grid, SearchContext context, int start, int goal, boolean allowDiagonals, SearchBudget budget) {
+
+		context.begin( grid.getCellCount());
+
+		IndexedHeap openSet = context.getOpenSet();
+
+		float minCost = grid.getMinCost();
+
+		Heuristic heuristic = getHeuristic( allowDiagonals);
+		float[] stepCosts = getStepCost( allowDiagonals).table();
+
+		long startTime = System.nanoTime();
+		long expansions = 0;
+
+		// statistics, counted in local variables so that they cost next to nothing
+		long generated = 1;
+		long heuristicEvaluations = 1;
+		int openPeak = 1;
+
+		// expanded cell with the lowest heuristic, end of the partial path if the budget runs out
+		int closest = start;
+		float closestH = heuristicCostEstimate( grid, heuristic, start, goal, minCost);
+
+		context.open( start, 0f, -1);
+		openSet.add( start, closestH);
+
+		// how the search ended and the last cell of the path, -1 if there is none
+		SearchResult.Status status = SearchResult.Status.NO_PATH;
+		int end = -1;
+
+		while( !openSet.isEmpty()) {
+
+			SearchResult.Status budgetStatus = budget.check( expansions, startTime);
+
+			if( budgetStatus != null) {
+				status = budgetStatus;
+				end = closest;
+				break;
+			}
+
+			int current = openSet.poll();
+
+			if( current == goal) {
+				status = SearchResult.Status.FOUND;
+				end = goal;
+				break;
+			}
+
+			context.close( current);
+			expansions++;
+
+			float currentH = heuristicCostEstimate( grid, heuristic, current, goal, minCost);
+			heuristicEvaluations++;
+
+			if( currentH < closestH) {
+				closest = current;
+				closestH = currentH;
+			}
+
+			float currentG = context.getG( current);
+
+			// half of the weight of the current cell, the other half comes from the neighbor
+			float currentCost = grid.getCost( current) / 2f;
+
+			int neighborMask = grid.getNeighborMask( current, allowDiagonals);
+
+			while( neighborMask != 0) {
+
+				int direction = Integer.numberOfTrailingZeros( neighborMask);
+				neighborMask &= neighborMask - 1;
+
+				int neighbor = grid.getNeighbor( current, direction);
+
+				byte state = context.getState( neighbor);
+
+				if( state == SearchContext.CLOSED) {
+					continue;
+				}
+
+				float tentativeScoreG = currentG + stepCosts[direction] * (currentCost + grid.getCost( neighbor) / 2f);
+
+				if( state == SearchContext.UNVISITED) {
+
+					context.open( neighbor, tentativeScoreG, current);
+					openSet.add( neighbor, tentativeScoreG + heuristicCostEstimate( grid, heuristic, neighbor, goal, minCost));
+					generated++;
+					heuristicEvaluations++;
+
+					if( openSet.size() > openPeak) {
+						openPeak = openSet.size();
+					}
+
+				} else if( tentativeScoreG < context.getG( neighbor)) {
+
+					context.update( neighbor, tentativeScoreG, current);
+					openSet.decreaseKey( neighbor, tentativeScoreG + heuristicCostEstimate( grid, heuristic, neighbor, goal, minCost));
+					heuristicEvaluations++;
+				}
+			}
+		}
+
+		// the path is empty if nothing was found, the cost of a partial path is the g score of its last cell
+		int[] path = end != -1 ? context.reconstructPath( end) : new int[0];
+		double cost = end != -1 ? context.getG( end) : Double.POSITIVE_INFINITY;
+
+		return new SearchResult( status, path, expansions, generated, openPeak, 0, heuristicEvaluations, cost, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Get the g score of a cell index of the last search which used the context of this algorithm instance.
+	 */
+	public float getG( int index) {
+		return context.getG( index);
+	}
+
+	/**
+	 * Heuristic between two cells times the lowest cost weight.
+	 */
+	private float heuristicCostEstimate( SearchGrid grid, Heuristic heuristic, int from, int to, float minCost) {
+		return heuristic.estimate( Math.abs( grid.col( from) - grid.col( to)), Math.abs( grid.row( from) - grid.row( to))) * minCost;
+	}
+}
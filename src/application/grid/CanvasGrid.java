@@ -0,0 +1,622 @@
+package application.grid;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import application.astar.PackedGrid;
+
+/**
+ * Alternative to {@link Grid} for large maps. Instead of a {@link Cell} node per cell, the cell types, marks and the path are
+ * kept in arrays and drawn onto a {@link Canvas}, so there is no layout or css pass per cell and a million cells are no problem.
+ *
+ * The map is drawn in tiles. Every tile is an image with a power of two pixels per cell which is drawn scaled to the zoom level.
+ * Changing a cell only marks its tile as dirty; the next redraw renders the dirty tiles again and draws all visible tiles.
+ * Only the tiles which are visible are kept.
+ *
+ * Scroll to zoom, drag with the middle mouse button to pan. The start and the goal are drawn on top of the tiles.
+ * A {@link PackedGrid} with the traversability and the cost weights is kept in sync, so the grid can be searched directly.
+ * The cells which changed since the last {@link #takeChangedCells()} are recorded, so a copy of the grid on another thread
+ * can be brought up to date without comparing all cells.
+ *
+ * The cells with a mark and the cells of the path are remembered, so changing them touches only those cells and not the whole map.
+ */
+public class CanvasGrid extends Pane {
+
+	/**
+	 * Size of a tile image in pixels.
+	 */
+	static final int TILE_PIXELS = 256;
+
+	/**
+	 * Highest number of pixels per cell in the tile images and the closest zoom level, so the images are never scaled up.
+	 */
+	static final int MAX_PIXELS_PER_CELL = 64;
+
+	static final double MIN_CELL_SIZE = 0.1;
+	static final double MAX_CELL_SIZE = MAX_PIXELS_PER_CELL;
+
+	/**
+	 * Cell lines are drawn from this many pixels per cell on.
+	 */
+	static final int MIN_LINE_PIXELS = 8;
+
+	/**
+	 * Bits of the overlay of a cell.
+	 */
+	static final byte OPEN = 1;
+	static final byte CLOSED = 2;
+	static final byte MARK = OPEN | CLOSED;
+	static final byte PATH = 4;
+
+	int columns;
+	int rows;
+
+	/**
+	 * {@link CellType} ordinal per cell index (row * columns + column).
+	 */
+	byte[] types;
+
+	/**
+	 * Mark and path bits per cell index.
+	 */
+	byte[] overlays;
+
+	PackedGrid searchGrid;
+
+	/**
+	 * Cell indices whose type changed since the last {@link #takeChangedCells()}.
+	 */
+	BitSet changedCells = new BitSet();
+
+	/**
+	 * Cell indices with a mark, the first markCount are valid. A cell is listed once.
+	 */
+	int[] markedCells = new int[ 64];
+	int markCount;
+
+	/**
+	 * Cell indices of the highlighted path.
+	 */
+	int[] pathCells = new int[0];
+
+	int startColumn;
+	int startRow;
+	int goalColumn;
+	int goalRow;
+
+	Canvas canvas = new Canvas();
+
+	/**
+	 * Pixels per cell on the screen and the position of the top left corner of the map relative to the canvas.
+	 */
+	double cellSize = 1;
+	double offsetX;
+	double offsetY;
+
+	/**
+	 * True once the map has been fitted into the size of the pane.
+	 */
+	boolean isFitted = false;
+
+	/**
+	 * Pixels per cell of the tile images and the number of cells per tile side, both depend on the zoom level.
+	 */
+	int pixelsPerCell;
+	int tileCells;
+	int tileColumns;
+	int tileRows;
+
+	/**
+	 * Tile images per tile index (tile row * tile columns + tile column), null if the tile isn't visible.
+	 */
+	WritableImage[] tiles;
+	boolean[] dirtyTiles;
+
+	int[] pixels = new int[ TILE_PIXELS * TILE_PIXELS];
+
+	/**
+	 * Colors per type ordinal and overlay.
+	 */
+	int[][] palette;
+	int[] lineColors;
+
+	boolean isRedrawRequested = false;
+
+	/**
+	 * Mouse position at the last pan event.
+	 */
+	double panX;
+	double panY;
+
+	public CanvasGrid( int columns, int rows) {
+
+		this.columns = columns;
+		this.rows = rows;
+
+		types = new byte[ columns * rows];
+		overlays = new byte[ columns * rows];
+
+		Arrays.fill( types, (byte) CellType.TRAVERSABLE.ordinal());
+
+		searchGrid = new PackedGrid( columns, rows);
+
+		for( int row=0; row < rows; row++) {
+			for( int col=0; col < columns; col++) {
+				searchGrid.setTraversable( col, row, true);
+			}
+		}
+
+		createPalette();
+
+		getChildren().add( canvas);
+
+		addEventHandler( ScrollEvent.SCROLL, this::zoom);
+		addEventFilter( MouseEvent.MOUSE_PRESSED, this::startPan);
+		addEventFilter( MouseEvent.MOUSE_DRAGGED, this::pan);
+	}
+
+	/**
+	 * Colors like those of the style sheet: terrain, then the open and closed marks, then the path; obstacles cover everything.
+	 */
+	private void createPalette() {
+
+		Color[] typeColors = new Color[ CellType.values().length];
+		typeColors[ CellType.TRAVERSABLE.ordinal()] = Color.WHITE;
+		typeColors[ CellType.OBSTACLE.ordinal()] = Color.BLACK.interpolate( Color.WHITE, 0.7);
+		typeColors[ CellType.ROAD.ordinal()] = Color.BURLYWOOD.interpolate( Color.WHITE, 0.5);
+		typeColors[ CellType.GRASS.ordinal()] = Color.YELLOWGREEN.interpolate( Color.WHITE, 0.5);
+		typeColors[ CellType.SWAMP.ordinal()] = Color.DARKOLIVEGREEN.interpolate( Color.WHITE, 0.3);
+
+		Color path = Color.DODGERBLUE.interpolate( Color.WHITE, 0.9);
+
+		palette = new int[ typeColors.length][ PATH << 1];
+		lineColors = new int[ typeColors.length];
+
+		for( CellType type: CellType.values()) {
+			for( int overlay = 0; overlay < PATH << 1; overlay++) {
+
+				Color color = typeColors[ type.ordinal()];
+
+				if( type.isTraversable()) {
+					if( (overlay & PATH) != 0) {
+						color = path;
+					} else if( (overlay & MARK) == OPEN) {
+						color = color.interpolate( Color.RED, 0.1);
+					} else if( (overlay & MARK) == CLOSED) {
+						color = color.interpolate( Color.LIME, 0.1);
+					}
+				}
+
+				palette[ type.ordinal()][overlay] = argb( color);
+			}
+
+			lineColors[ type.ordinal()] = argb( type.isTraversable() ? Color.DODGERBLUE : Color.BLACK);
+		}
+	}
+
+	private static int argb( Color color) {
+		return (int) Math.round( color.getOpacity() * 255) << 24 | (int) Math.round( color.getRed() * 255) << 16 | (int) Math.round( color.getGreen() * 255) << 8 | (int) Math.round( color.getBlue() * 255);
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int index( int column, int row) {
+		return row * columns + column;
+	}
+
+	/**
+	 * Grid with the traversability and cost weights of the cells, kept in sync by {@link #setType(int, int, CellType)}.
+	 */
+	public PackedGrid getSearchGrid() {
+		return searchGrid;
+	}
+
+	public CellType getType( int column, int row) {
+		return CellType.values()[ types[ index( column, row)]];
+	}
+
+	public void setType( int column, int row, CellType type) {
+
+		int index = index( column, row);
+
+		if( types[index] == type.ordinal()) {
+			return;
+		}
+
+		types[index] = (byte) type.ordinal();
+
+		if( searchGrid.isTraversable( index) != type.isTraversable()) {
+			searchGrid.setTraversable( column, row, type.isTraversable());
+		}
+		if( type.isTraversable()) {
+			searchGrid.setCost( column, row, type.getCost());
+		}
+
+		changedCells.set( index);
+
+		invalidate( column, row);
+	}
+
+	/**
+	 * Get the cell indices whose type changed since the last call, in ascending order.
+	 */
+	public int[] takeChangedCells() {
+
+		int[] cells = changedCells.stream().toArray();
+
+		changedCells.clear();
+
+		return cells;
+	}
+
+	/**
+	 * Change the type of all cells.
+	 */
+	public void setType( CellType type) {
+		for( int row=0; row < rows; row++) {
+			for( int col=0; col < columns; col++) {
+				setType( col, row, type);
+			}
+		}
+	}
+
+	public void setMark( int column, int row, CellMark mark) {
+
+		int index = index( column, row);
+
+		byte overlay = (byte) ((overlays[index] & ~MARK) | (mark == CellMark.OPEN ? OPEN : CLOSED));
+
+		if( overlay == overlays[index]) {
+			return;
+		}
+
+		if( (overlays[index] & MARK) == 0) {
+
+			if( markCount == markedCells.length) {
+				markedCells = Arrays.copyOf( markedCells, markCount * 2);
+			}
+
+			markedCells[ markCount++] = index;
+		}
+
+		overlays[index] = overlay;
+		invalidate( column, row);
+	}
+
+	/**
+	 * Replace the marks with the given open and closed cell indices.
+	 */
+	public void setMarks( int[] openCells, int[] closedCells) {
+
+		removeMarks();
+
+		for( int index: openCells) {
+			setMark( index % columns, index / columns, CellMark.OPEN);
+		}
+
+		for( int index: closedCells) {
+			setMark( index % columns, index / columns, CellMark.CLOSED);
+		}
+	}
+
+	public void removeMarks() {
+
+		for( int i = 0; i < markCount; i++) {
+			removeOverlay( markedCells[i], MARK);
+		}
+
+		markCount = 0;
+	}
+
+	/**
+	 * Highlight the cells of a path, given as cell indices. The previous path is removed.
+	 * The array is kept until the next change of the path, it must not be modified.
+	 */
+	public void setPath( int[] path) {
+
+		removeHighlight();
+
+		for( int index: path) {
+			overlays[index] |= PATH;
+			invalidate( index % columns, index / columns);
+		}
+
+		pathCells = path;
+	}
+
+	public void removeHighlight() {
+
+		for( int index: pathCells) {
+			removeOverlay( index, PATH);
+		}
+
+		pathCells = new int[0];
+	}
+
+	private void removeOverlay( int index, byte bits) {
+		if( (overlays[index] & bits) != 0) {
+			overlays[index] &= ~bits;
+			invalidate( index % columns, index / columns);
+		}
+	}
+
+	public int getStartColumn() {
+		return startColumn;
+	}
+
+	public int getStartRow() {
+		return startRow;
+	}
+
+	public int getGoalColumn() {
+		return goalColumn;
+	}
+
+	public int getGoalRow() {
+		return goalRow;
+	}
+
+	public void setStart( int column, int row) {
+		startColumn = column;
+		startRow = row;
+		requestRedraw();
+	}
+
+	public void setGoal( int column, int row) {
+		goalColumn = column;
+		goalRow = row;
+		requestRedraw();
+	}
+
+	/**
+	 * Column of the cell at an x coordinate of this pane, -1 if there is none.
+	 */
+	public int getColumn( double x) {
+		int column = (int) Math.floor( (x - offsetX) / cellSize);
+		return column >= 0 && column < columns ? column : -1;
+	}
+
+	/**
+	 * Row of the cell at a y coordinate of this pane, -1 if there is none.
+	 */
+	public int getRow( double y) {
+		int row = (int) Math.floor( (y - offsetY) / cellSize);
+		return row >= 0 && row < rows ? row : -1;
+	}
+
+	/**
+	 * Mark the tile of a cell as dirty and redraw in the next pulse.
+	 */
+	private void invalidate( int column, int row) {
+
+		if( dirtyTiles != null) {
+			dirtyTiles[ (row / tileCells) * tileColumns + column / tileCells] = true;
+		}
+
+		requestRedraw();
+	}
+
+	/**
+	 * Redraw once after all changes of the current event.
+	 */
+	private void requestRedraw() {
+
+		if( isRedrawRequested) {
+			return;
+		}
+
+		isRedrawRequested = true;
+
+		Platform.runLater( this::redraw);
+	}
+
+	@Override
+	protected void layoutChildren() {
+
+		canvas.setWidth( getWidth());
+		canvas.setHeight( getHeight());
+
+		if( !isFitted && getWidth() > 0 && getHeight() > 0) {
+			fit();
+		}
+
+		redraw();
+	}
+
+	/**
+	 * Zoom so that the whole map is visible and center it.
+	 */
+	public void fit() {
+
+		cellSize = Math.max( MIN_CELL_SIZE, Math.min( getWidth() / columns, getHeight() / rows));
+		offsetX = (getWidth() - columns * cellSize) / 2;
+		offsetY = (getHeight() - rows * cellSize) / 2;
+
+		isFitted = true;
+
+		requestRedraw();
+	}
+
+	private void zoom( ScrollEvent event) {
+
+		double factor = Math.pow( 1.25, event.getDeltaY() / 40);
+		double newCellSize = Math.max( MIN_CELL_SIZE, Math.min( MAX_CELL_SIZE, cellSize * factor));
+
+		// keep the point under the mouse in place
+		offsetX = event.getX() - (event.getX() - offsetX) * newCellSize / cellSize;
+		offsetY = event.getY() - (event.getY() - offsetY) * newCellSize / cellSize;
+		cellSize = newCellSize;
+
+		requestRedraw();
+
+		event.consume();
+	}
+
+	private void startPan( MouseEvent event) {
+
+		if( event.getButton() != MouseButton.MIDDLE) {
+			return;
+		}
+
+		panX = event.getX();
+		panY = event.getY();
+
+		event.consume();
+	}
+
+	private void pan( MouseEvent event) {
+
+		if( !event.isMiddleButtonDown()) {
+			return;
+		}
+
+		offsetX += event.getX() - panX;
+		offsetY += event.getY() - panY;
+		panX = event.getX();
+		panY = event.getY();
+
+		requestRedraw();
+
+		event.consume();
+	}
+
+	/**
+	 * Render the dirty visible tiles, draw the visible tiles, the start and the goal.
+	 */
+	private void redraw() {
+
+		isRedrawRequested = false;
+
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect( 0, 0, canvas.getWidth(), canvas.getHeight());
+
+		updateTileLevel();
+
+		int firstTileColumn = Math.max( 0, (int) Math.floor( -offsetX / (cellSize * tileCells)));
+		int firstTileRow = Math.max( 0, (int) Math.floor( -offsetY / (cellSize * tileCells)));
+		int lastTileColumn = Math.min( tileColumns - 1, (int) Math.floor( (canvas.getWidth() - offsetX) / (cellSize * tileCells)));
+		int lastTileRow = Math.min( tileRows - 1, (int) Math.floor( (canvas.getHeight() - offsetY) / (cellSize * tileCells)));
+
+		for( int tileRow = 0; tileRow < tileRows; tileRow++) {
+			for( int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+
+				int tile = tileRow * tileColumns + tileColumn;
+
+				if( tileColumn < firstTileColumn || tileColumn > lastTileColumn || tileRow < firstTileRow || tileRow > lastTileRow) {
+					// not visible, render it again when it becomes visible
+					tiles[tile] = null;
+					continue;
+				}
+
+				if( tiles[tile] == null || dirtyTiles[tile]) {
+					renderTile( tileColumn, tileRow);
+				}
+
+				WritableImage image = tiles[tile];
+
+				gc.drawImage( image, offsetX + tileColumn * tileCells * cellSize, offsetY + tileRow * tileCells * cellSize, image.getWidth() / pixelsPerCell * cellSize, image.getHeight() / pixelsPerCell * cellSize);
+			}
+		}
+
+		double lineWidth = Math.max( 1, Math.min( 3, cellSize / 8));
+		gc.setLineWidth( lineWidth);
+
+		gc.setStroke( Color.GREEN);
+		gc.strokeRect( offsetX + startColumn * cellSize + lineWidth / 2, offsetY + startRow * cellSize + lineWidth / 2, cellSize - lineWidth, cellSize - lineWidth);
+
+		gc.setStroke( Color.RED);
+		gc.strokeRect( offsetX + goalColumn * cellSize + lineWidth / 2, offsetY + goalRow * cellSize + lineWidth / 2, cellSize - lineWidth, cellSize - lineWidth);
+	}
+
+	/**
+	 * Choose the pixels per cell of the tile images for the zoom level. All tiles are dropped if it changes.
+	 */
+	private void updateTileLevel() {
+
+		int pixelsPerCell = 1;
+		while( pixelsPerCell < cellSize && pixelsPerCell < MAX_PIXELS_PER_CELL) {
+			pixelsPerCell <<= 1;
+		}
+
+		if( pixelsPerCell == this.pixelsPerCell) {
+			return;
+		}
+
+		this.pixelsPerCell = pixelsPerCell;
+
+		tileCells = TILE_PIXELS / pixelsPerCell;
+		tileColumns = (columns + tileCells - 1) / tileCells;
+		tileRows = (rows + tileCells - 1) / tileCells;
+
+		tiles = new WritableImage[ tileColumns * tileRows];
+		dirtyTiles = new boolean[ tileColumns * tileRows];
+	}
+
+	/**
+	 * Draw the cells of a tile into its image.
+	 */
+	private void renderTile( int tileColumn, int tileRow) {
+
+		int tile = tileRow * tileColumns + tileColumn;
+
+		int firstColumn = tileColumn * tileCells;
+		int firstRow = tileRow * tileCells;
+		int tileWidth = Math.min( tileCells, columns - firstColumn);
+		int tileHeight = Math.min( tileCells, rows - firstRow);
+
+		int width = tileWidth * pixelsPerCell;
+		int height = tileHeight * pixelsPerCell;
+
+		boolean withLines = pixelsPerCell >= MIN_LINE_PIXELS;
+
+		for( int row = 0; row < tileHeight; row++) {
+			for( int col = 0; col < tileWidth; col++) {
+
+				int index = index( firstColumn + col, firstRow + row);
+
+				int color = palette[ types[index]][ overlays[index]];
+				int lineColor = withLines ? lineColors[ types[index]] : color;
+
+				// cell block, the last pixel row and column is the line to the next cell
+				for( int y = 0; y < pixelsPerCell; y++) {
+
+					int offset = (row * pixelsPerCell + y) * width + col * pixelsPerCell;
+
+					if( y == pixelsPerCell - 1) {
+						Arrays.fill( pixels, offset, offset + pixelsPerCell, lineColor);
+					} else {
+						Arrays.fill( pixels, offset, offset + pixelsPerCell - 1, color);
+						pixels[ offset + pixelsPerCell - 1] = lineColor;
+					}
+				}
+			}
+		}
+
+		WritableImage image = tiles[tile];
+
+		if( image == null || (int) image.getWidth() != width || (int) image.getHeight() != height) {
+			image = new WritableImage( width, height);
+			tiles[tile] = image;
+		}
+
+		image.getPixelWriter().setPixels( 0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+
+		dirtyTiles[tile] = false;
+	}
+}
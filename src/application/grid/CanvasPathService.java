@@ -0,0 +1,265 @@
+package application.grid;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import application.astar.CancellationToken;
+import application.astar.PackedGrid;
+import application.astar.SearchBudget;
+import application.astar.SearchContext;
+import application.astar.SearchResult;
+import application.astar.TerrainAStarAlgorithm;
+
+/**
+ * Runs the searches on a {@link CanvasGrid} on a background thread, the counterpart of {@link PathService} for the canvas renderer.
+ *
+ * The background thread searches its own copy of the {@link CanvasGrid#getSearchGrid() search grid}. Every request takes the cells which
+ * changed since the request before and carries their traversability and cost weights; the background thread applies them to its copy
+ * before it searches, also for requests which are skipped. So the JavaFX Application Thread can go on painting while a search runs.
+ *
+ * Requests are coalesced like those of {@link PathService}: a request without changes and with the same start, goal and neighbor mode as the
+ * newest one is ignored, a different one cancels the search which is running. The result is published via {@link Platform#runLater(Runnable)},
+ * unless a newer request has arrived in the meantime. The open and closed cells of the published search are available for the step view.
+ *
+ * All methods except {@link #shutdown()} have to be called on the JavaFX Application Thread.
+ */
+public class CanvasPathService {
+
+	CanvasGrid canvasGrid;
+
+	/**
+	 * Maximum time of a search in nanoseconds, the partial path is published if it runs out.
+	 */
+	long maxTime;
+
+	/**
+	 * Copy of the search grid of the canvas, only used by the background thread.
+	 */
+	PackedGrid searchGrid;
+
+	TerrainAStarAlgorithm algorithm = new TerrainAStarAlgorithm();
+	SearchContext context = new SearchContext( 0);
+
+	/**
+	 * One thread, so the requests and their changes are applied in order.
+	 */
+	ExecutorService executor = Executors.newSingleThreadExecutor( runnable -> {
+		Thread thread = new Thread( runnable, "canvas-path-service");
+		thread.setDaemon( true);
+		return thread;
+	});
+
+	/**
+	 * Newest request, the only one whose result is published.
+	 */
+	Request newest = null;
+
+	/**
+	 * Open and closed cell indices of the published search.
+	 */
+	int[] openCells = new int[0];
+	int[] closedCells = new int[0];
+
+	public CanvasPathService( CanvasGrid canvasGrid, long maxTime) {
+
+		this.canvasGrid = canvasGrid;
+		this.maxTime = maxTime;
+
+		// the changes so far are part of the copy
+		canvasGrid.takeChangedCells();
+		searchGrid = new PackedGrid( canvasGrid.getSearchGrid());
+	}
+
+	/**
+	 * Search from the start to the goal of the canvas grid on a background thread and pass the result to the consumer on the JavaFX Application Thread.
+	 *
+	 * @return false if the request was ignored because it is the same as the newest one
+	 */
+	public boolean request( boolean allowDiagonals, Consumer<SearchResult> consumer) {
+
+		PackedGrid grid = canvasGrid.getSearchGrid();
+
+		int start = grid.index( canvasGrid.getStartColumn(), canvasGrid.getStartRow());
+		int goal = grid.index( canvasGrid.getGoalColumn(), canvasGrid.getGoalRow());
+
+		Request request = new Request( canvasGrid.takeChangedCells(), start, goal, allowDiagonals, consumer);
+
+		for( int i = 0; i < request.changedCells.length; i++) {
+			request.traversable[i] = grid.isTraversable( request.changedCells[i]);
+			request.costs[i] = grid.getCost( request.changedCells[i]);
+		}
+
+		if( newest != null) {
+
+			if( request.changedCells.length == 0 && newest.isSameAs( request)) {
+				return false;
+			}
+
+			// superseded
+			newest.cancellationToken.cancel();
+		}
+
+		newest = request;
+
+		executor.execute( () -> run( request));
+
+		return true;
+	}
+
+	/**
+	 * True if the result of the newest request hasn't been published yet.
+	 */
+	public boolean isBusy() {
+		return newest != null && !newest.isDone;
+	}
+
+	/**
+	 * Open cell indices of the published search.
+	 */
+	public int[] getOpenCells() {
+		return openCells;
+	}
+
+	/**
+	 * Closed cell indices of the published search.
+	 */
+	public int[] getClosedCells() {
+		return closedCells;
+	}
+
+	/**
+	 * Stop the background thread. The search which is running is cancelled.
+	 */
+	public void shutdown() {
+
+		Request request = newest;
+
+		if( request != null) {
+			request.cancellationToken.cancel();
+		}
+
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Runs on the background thread. The changes are applied even if the request has been superseded, the search is skipped then.
+	 */
+	private void run( Request request) {
+
+		for( int i = 0; i < request.changedCells.length; i++) {
+
+			int index = request.changedCells[i];
+			int col = searchGrid.col( index);
+			int row = searchGrid.row( index);
+
+			if( searchGrid.isTraversable( index) != request.traversable[i]) {
+				searchGrid.setTraversable( col, row, request.traversable[i]);
+			}
+			if( request.traversable[i] && searchGrid.getCost( index) != request.costs[i]) {
+				searchGrid.setCost( col, row, request.costs[i]);
+			}
+		}
+
+		if( request.cancellationToken.isCancelled()) {
+			return;
+		}
+
+		request.result = algorithm.search( searchGrid, context, request.start, request.goal, request.allowDiagonals, new SearchBudget( Long.MAX_VALUE, maxTime, request.cancellationToken));
+
+		collectMarks( request);
+
+		Platform.runLater( () -> publish( request));
+	}
+
+	/**
+	 * Collect the open and closed cells of the search of the request. Runs on the background thread, the context belongs to it.
+	 * Only the cells which the search has visited are looked at, so the cost depends on the search and not on the size of the grid.
+	 */
+	private void collectMarks( Request request) {
+
+		int visitedCount = context.getVisitedCount();
+
+		int[] open = new int[ visitedCount];
+		int[] closed = new int[ visitedCount];
+		int openCount = 0;
+		int closedCount = 0;
+
+		for( int i = 0; i < visitedCount; i++) {
+
+			int index = context.getVisited( i);
+
+			if( context.getState( index) == SearchContext.OPEN) {
+				open[ openCount++] = index;
+			} else {
+				closed[ closedCount++] = index;
+			}
+		}
+
+		request.openCells = Arrays.copyOf( open, openCount);
+		request.closedCells = Arrays.copyOf( closed, closedCount);
+	}
+
+	/**
+	 * Runs on the JavaFX Application Thread.
+	 */
+	private void publish( Request request) {
+
+		if( request != newest || request.cancellationToken.isCancelled()) {
+			return;
+		}
+
+		request.isDone = true;
+
+		openCells = request.openCells;
+		closedCells = request.closedCells;
+
+		request.consumer.accept( request.result);
+	}
+
+	private static class Request {
+
+		/**
+		 * Cells which changed since the request before, with their traversability and cost weight at the time of the request.
+		 */
+		int[] changedCells;
+		boolean[] traversable;
+		float[] costs;
+
+		int start;
+		int goal;
+		boolean allowDiagonals;
+
+		Consumer<SearchResult> consumer;
+
+		CancellationToken cancellationToken = new CancellationToken();
+
+		/**
+		 * Set by the background thread before the request is published.
+		 */
+		SearchResult result;
+		int[] openCells;
+		int[] closedCells;
+
+		boolean isDone = false;
+
+		Request( int[] changedCells, int start, int goal, boolean allowDiagonals, Consumer<SearchResult> consumer) {
+			this.changedCells = changedCells;
+			this.traversable = new boolean[ changedCells.length];
+			this.costs = new float[ changedCells.length];
+			this.start = start;
+			this.goal = goal;
+			this.allowDiagonals = allowDiagonals;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * True if the other request has the same start, goal and neighbor mode.
+		 */
+		boolean isSameAs( Request other) {
+			return start == other.start && goal == other.goal && allowDiagonals == other.allowDiagonals;
+		}
+	}
+}
@@ -17,6 +17,13 @@ public class Cell extends StackPane {
 	Label labelG;
 	Label labelH;
 	
+	/**
+	 * Grid which keeps track of this cell's highlight, mark and text, null for overlay cells.
+	 */
+	Grid grid;
+	
+	boolean highlighted = false;
+	
 	public Cell( String text, int column, int row, CellType type) {
 		
 		this.column = column;
@@ -46,30 +53,73 @@ public class Cell extends StackPane {
 	}
 
 	public void highlight() {
+		
+		if( highlighted)
+			return;
+		
+		highlighted = true;
 		getStyleClass().add("path");
+		
+		if( grid != null) {
+			grid.highlighted.add( this);
+		}
 	}
 
 	public void removeHighlight() {
+		
+		if( !highlighted)
+			return;
+		
+		highlighted = false;
 		getStyleClass().remove("path");
+		
+		if( grid != null) {
+			grid.highlighted.remove( this);
+		}
 	}
 	
 	public CellType getType() {
 		return type;
 	}
 
+	/**
+	 * Set the type. The grid is notified if it changes, see {@link Grid#addTypeListener(Grid.TypeListener)}.
+	 */
 	public void setType( CellType type) {
+		
+		if( this.type == type)
+			return;
+		
 		this.type = type;
 		updateTypeStyle();
+		
+		if( grid != null) {
+			grid.fireTypeChanged( this);
+		}
 	}
 
 	public void removeMark() {
-		this.mark = null;
-		updateMarkStyle();
+		setMark( null);
 	}
 
+	/**
+	 * Set the mark, null for none. The style is only changed if the mark is different.
+	 */
 	public void setMark( CellMark mark) {
+		
+		if( this.mark == mark)
+			return;
+		
 		this.mark = mark;
 		updateMarkStyle();
+		
+		if( grid != null) {
+			if( mark != null) {
+				grid.marked.add( this);
+			} else {
+				grid.marked.remove( this);
+			}
+		}
 	}
 	
 	public String toString() {
@@ -85,19 +135,44 @@ public class Cell extends StackPane {
 	}
 	
 	public boolean isTraversable()  {
-		return type == CellType.TRAVERSABLE;
+		return type.isTraversable();
+	}
+	
+	/**
+	 * Cost weight of a step on this cell, see {@link CellType#getCost()}.
+	 */
+	public float getCost() {
+		return type.getCost();
 	}
 	
 	public void setTextF( String text) {
 		labelF.setText(text);
+		updateTextTracking();
 	}
 
 	public void setTextG( String text) {
 		labelG.setText(text);
+		updateTextTracking();
 	}
 
 	public void setTextH( String text) {
 		labelH.setText(text);
+		updateTextTracking();
+	}
+
+	/**
+	 * Let the grid know whether this cell shows any text.
+	 */
+	private void updateTextTracking() {
+		
+		if( grid == null)
+			return;
+		
+		if( labelF.getText().isEmpty() && labelG.getText().isEmpty() && labelH.getText().isEmpty()) {
+			grid.texted.remove( this);
+		} else {
+			grid.texted.add( this);
+		}
 	}
 
 	/**
@@ -108,6 +183,9 @@ public class Cell extends StackPane {
 		// remove existing styles
 		getStyleClass().remove( "traversable");
 		getStyleClass().remove( "obstacle");
+		getStyleClass().remove( "road");
+		getStyleClass().remove( "grass");
+		getStyleClass().remove( "swamp");
 
 		// set new styles
 		switch( type) {
@@ -117,6 +195,15 @@ public class Cell extends StackPane {
 		case OBSTACLE:
 			getStyleClass().add("obstacle");
 			break;
+		case ROAD:
+			getStyleClass().add("road");
+			break;
+		case GRASS:
+			getStyleClass().add("grass");
+			break;
+		case SWAMP:
+			getStyleClass().add("swamp");
+			break;
 		}
 		
 	}
@@ -1,14 +1,46 @@
 package application.grid;
 
 public enum CellType {
-	
+
 	/**
 	 * Cells can be traversed.
 	 */
-	TRAVERSABLE,
-	
+	TRAVERSABLE( 1f),
+
 	/**
 	 * Cells which are obstacles and can't be traversed.
 	 */
-	OBSTACLE
+	OBSTACLE( Float.POSITIVE_INFINITY),
+
+	/**
+	 * Traversable terrain which is cheaper than the default.
+	 */
+	ROAD( 0.5f),
+
+	/**
+	 * Traversable terrain which is more expensive than the default.
+	 */
+	GRASS( 2f),
+
+	/**
+	 * Traversable terrain which is much more expensive than the default.
+	 */
+	SWAMP( 5f);
+
+	/**
+	 * Cost weight of a step on cells of this type, infinite for obstacles.
+	 */
+	final float cost;
+
+	private CellType( float cost) {
+		this.cost = cost;
+	}
+
+	public float getCost() {
+		return cost;
+	}
+
+	public boolean isTraversable() {
+		return cost != Float.POSITIVE_INFINITY;
+	}
 }
@@ -1,5 +1,11 @@
 package application.grid;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import javafx.geometry.Point2D;
 import javafx.scene.layout.Pane;
 
@@ -16,6 +22,23 @@ public class Grid extends Pane {
 
 	Cell[][] cells;
 
+	/**
+	 * Cells which currently carry a highlight, a mark or text. Maintained by the cells, so updates only touch these
+	 * instead of every cell of the grid.
+	 */
+	Set<Cell> highlighted = new HashSet<>();
+	Set<Cell> marked = new HashSet<>();
+	Set<Cell> texted = new HashSet<>();
+	
+	/**
+	 * Receives the cells whose type changed.
+	 */
+	@FunctionalInterface
+	public interface TypeListener {
+		void typeChanged( Cell cell);
+	}
+	
+	List<TypeListener> typeListeners = new ArrayList<>();
 	
 	public Grid(int columns, int rows, double width, double height) {
 
@@ -34,6 +57,7 @@ public class Grid extends Pane {
 	public void add(Cell cell, int column, int row) {
 
 		cells[row][column] = cell;
+		cell.grid = this;
 
 		double w = width / columns;
 		double h = height / rows;
@@ -121,24 +145,102 @@ public class Grid extends Pane {
 	}
 
 	/**
-	 * Remove highlights, reset text in cells
+	 * Remove highlights
 	 */
 	public void removeHighlight() {
-		for (int row = 0; row < rows; row++) {
-			for (int col = 0; col < columns; col++) {
-				cells[row][col].removeHighlight();
+		for( Cell cell: new ArrayList<>( highlighted)) {
+			cell.removeHighlight();
+		}
+	}
+
+	/**
+	 * Highlight the cells of a path. Only the cells which differ from the current highlight are changed.
+	 */
+	public void highlight( Collection<Cell> path) {
+
+		Set<Cell> next = new HashSet<>( path);
+
+		for( Cell cell: new ArrayList<>( highlighted)) {
+			if( !next.contains( cell)) {
+				cell.removeHighlight();
 			}
 		}
+
+		for( Cell cell: path) {
+			cell.highlight();
+		}
 	}
 
+	/**
+	 * Reset text in cells
+	 */
 	public void resetText() {
-		for (int row = 0; row < rows; row++) {
-			for (int col = 0; col < columns; col++) {
-				cells[row][col].setTextF("");
-				cells[row][col].setTextG("");
-				cells[row][col].setTextH("");
+		for( Cell cell: new ArrayList<>( texted)) {
+			cell.setTextF("");
+			cell.setTextG("");
+			cell.setTextH("");
+		}
+	}
+
+	/**
+	 * Reset the text of all cells except the given ones.
+	 */
+	public void retainText( Set<Cell> keep) {
+		for( Cell cell: new ArrayList<>( texted)) {
+			if( !keep.contains( cell)) {
+				cell.setTextF("");
+				cell.setTextG("");
+				cell.setTextH("");
+			}
+		}
+	}
+
+	public void removeMarks() {
+		for( Cell cell: new ArrayList<>( marked)) {
+			cell.removeMark();
+		}
+	}
+
+	/**
+	 * Mark the open and closed cells, closed wins if a cell is in both. Only the cells whose mark differs are changed.
+	 */
+	public void setMarks( Collection<Cell> open, Collection<Cell> closed) {
+
+		Set<Cell> openSet = new HashSet<>( open);
+		Set<Cell> closedSet = new HashSet<>( closed);
+
+		for( Cell cell: new ArrayList<>( marked)) {
+			if( !openSet.contains( cell) && !closedSet.contains( cell)) {
+				cell.removeMark();
+			}
+		}
+
+		for( Cell cell: open) {
+			if( !closedSet.contains( cell)) {
+				cell.setMark( CellMark.OPEN);
 			}
 		}
+
+		for( Cell cell: closed) {
+			cell.setMark( CellMark.CLOSED);
+		}
+	}
+
+	public void addTypeListener( TypeListener listener) {
+		typeListeners.add( listener);
+	}
+
+	public void removeTypeListener( TypeListener listener) {
+		typeListeners.remove( listener);
+	}
+
+	/**
+	 * Called by a cell of this grid after its type changed.
+	 */
+	void fireTypeChanged( Cell cell) {
+		for( TypeListener listener: typeListeners) {
+			listener.typeChanged( cell);
+		}
 	}
 
 	/**
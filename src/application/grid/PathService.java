@@ -0,0 +1,160 @@
+package application.grid;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import application.astar.CancellationToken;
+import application.astar.SearchBudget;
+
+/**
+ * Runs the searches of a {@link Wrapper} on a background thread, so the JavaFX Application Thread doesn't block on large grids.
+ *
+ * Requests are coalesced: only the newest request is computed. A request which is the same as the newest one (start, goal,
+ * neighbor mode and grid) is ignored, a different one cancels the search which is running and replaces the one which is waiting.
+ * The path of a search is published via {@link Platform#runLater(Runnable)}, unless a newer request has arrived in the meantime.
+ *
+ * All methods except {@link #shutdown()} have to be called on the JavaFX Application Thread.
+ */
+public class PathService<T extends Cell> {
+
+	Wrapper<T> wrapper;
+
+	/**
+	 * One thread, so at most one search runs at a time and the searches don't compete for the cpu.
+	 */
+	ExecutorService executor = Executors.newSingleThreadExecutor( runnable -> {
+		Thread thread = new Thread( runnable, "path-service");
+		thread.setDaemon( true);
+		return thread;
+	});
+
+	/**
+	 * Newest request, the only one whose path is published.
+	 */
+	Request newest = null;
+
+	/**
+	 * Version of the grid of the newest request, increased whenever the terrain of a request differs from the one before.
+	 */
+	long gridVersion;
+
+	public PathService( Wrapper<T> wrapper) {
+		this.wrapper = wrapper;
+	}
+
+	/**
+	 * Find the path on a background thread and pass it to the consumer on the JavaFX Application Thread.
+	 * The wrapper has taken over the search when the consumer is called, so its steps and status are available.
+	 *
+	 * @return false if the request was ignored because it is the same as the newest one
+	 */
+	public boolean request( Grid grid, T start, T goal, boolean allowDiagonals, Consumer<List<T>> consumer) {
+
+		Wrapper.Search<T> search = wrapper.prepare( grid, start, goal, allowDiagonals);
+
+		if( newest != null) {
+
+			if( !search.hasSameTerrain( newest.search)) {
+				gridVersion++;
+			} else if( newest.isSameAs( search)) {
+				return false;
+			}
+
+			// superseded
+			newest.cancellationToken.cancel();
+		}
+
+		Request request = new Request( search, gridVersion, consumer);
+
+		newest = request;
+
+		executor.execute( () -> run( request));
+
+		return true;
+	}
+
+	/**
+	 * True if the path of the newest request hasn't been published yet.
+	 */
+	public boolean isBusy() {
+		return newest != null && !newest.isDone;
+	}
+
+	/**
+	 * Stop the background thread. The search which is running is cancelled.
+	 */
+	public void shutdown() {
+
+		Request request = newest;
+
+		if( request != null) {
+			request.cancellationToken.cancel();
+		}
+
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Runs on the background thread. Requests which have been superseded while they were waiting are skipped.
+	 */
+	private void run( Request request) {
+
+		if( request.cancellationToken.isCancelled()) {
+			return;
+		}
+
+		request.search.run( withToken( wrapper.getBudget(), request.cancellationToken));
+
+		Platform.runLater( () -> publish( request));
+	}
+
+	/**
+	 * Runs on the JavaFX Application Thread.
+	 */
+	private void publish( Request request) {
+
+		if( request != newest || request.cancellationToken.isCancelled()) {
+			return;
+		}
+
+		request.isDone = true;
+
+		request.consumer.accept( wrapper.apply( request.search));
+	}
+
+	/**
+	 * The limits of the wrapper with the token of the request instead of its own, so a superseded search stops early.
+	 */
+	private static SearchBudget withToken( SearchBudget budget, CancellationToken cancellationToken) {
+		return new SearchBudget( budget.getMaxExpansions(), budget.getMaxTime(), cancellationToken);
+	}
+
+	private class Request {
+
+		Wrapper.Search<T> search;
+		long gridVersion;
+		Consumer<List<T>> consumer;
+
+		CancellationToken cancellationToken = new CancellationToken();
+
+		boolean isDone = false;
+
+		Request( Wrapper.Search<T> search, long gridVersion, Consumer<List<T>> consumer) {
+			this.search = search;
+			this.gridVersion = gridVersion;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * True if the search has the same start, goal, neighbor mode and grid version as this request.
+		 */
+		boolean isSameAs( Wrapper.Search<T> other) {
+			return search.getStartColumn() == other.getStartColumn() && search.getStartRow() == other.getStartRow()
+					&& search.getGoalColumn() == other.getGoalColumn() && search.getGoalRow() == other.getGoalRow()
+					&& search.isAllowDiagonals() == other.isAllowDiagonals() && gridVersion == PathService.this.gridVersion;
+		}
+	}
+}
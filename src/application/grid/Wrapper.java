@@ -2,18 +2,36 @@ package application.grid;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import application.astar.AStarCell;
 import application.astar.AStarGrid;
 import application.astar.AStarAlgorithm;
+import application.astar.DStarLiteAlgorithm;
+import application.astar.Heuristic;
+import application.astar.PackedGrid;
+import application.astar.PathCache;
+import application.astar.SearchBudget;
+import application.astar.SearchResult;
+import application.astar.StepCost;
+import application.astar.StepLog;
+import application.astar.TerrainAStarAlgorithm;
 import application.grid.Grid;
 import application.grid.Cell;
 
 public class Wrapper<T extends Cell> {
 
 	AStarAlgorithm alg = new AStarAlgorithm();
+	
+	/**
+	 * Engine of the searches of {@link #prepare(Grid, Cell, Cell, boolean)}. It swaps with {@link #alg} when a search is applied,
+	 * so the steps of the shown search stay readable while the next one runs, and no engine is created per search.
+	 */
+	AStarAlgorithm spareAlg = new AStarAlgorithm();
 
 	AStarGrid<T> g = null;
 	AStarCell<T> s = null;
@@ -21,84 +39,581 @@ public class Wrapper<T extends Cell> {
 
 	List<T> path = null;
 	
+	/**
+	 * Limits of {@link #findPath(Grid, Cell, Cell, boolean)} and how the last call ended.
+	 */
+	SearchBudget budget = SearchBudget.UNLIMITED;
+	SearchResult.Status status = null;
+	
+	/**
+	 * Result of the last call with the statistics of the search.
+	 */
+	SearchResult result = null;
+	
+	/**
+	 * Time in nanoseconds which the algorithm needed in the last call.
+	 */
+	long calcTime;
+	
+	/**
+	 * Last requested step of {@link #getOpenSnapshot(int)} and {@link #getClosedSnapshot(int)}, both are requested for the same step.
+	 * It is the cursor of the step log, which moves from one step to the next instead of replaying the search.
+	 */
+	StepLog.Step step = null;
+	int stepIndex = -1;
+	
+	/**
+	 * Incremental planner and its grid, kept between the calls of {@link #findPathIncremental(Grid, Cell, Cell, boolean)}.
+	 * The cells whose type changed since the last call are collected by {@link #syncListener}.
+	 */
+	DStarLiteAlgorithm incrementalAlg = null;
+	PackedGrid packedGrid = null;
+	Grid incrementalGrid = null;
+	boolean incrementalDiagonals;
+	Set<Cell> incrementalChanges = new LinkedHashSet<>();
+	
+	/**
+	 * Maximum number of paths kept by {@link #findPathCached(Grid, Cell, Cell, boolean)}.
+	 */
+	static final int CACHE_CAPACITY = 1024;
+	
+	/**
+	 * Path cache and its grid, kept between the calls of {@link #findPathCached(Grid, Cell, Cell, boolean)}.
+	 * The cells whose type changed since the last call are collected by {@link #syncListener}.
+	 */
+	PathCache pathCache = null;
+	PackedGrid cachedGrid = null;
+	Grid pathCacheGrid = null;
+	Set<Cell> cacheChanges = new LinkedHashSet<>();
+	
+	/**
+	 * A* grid which is kept in sync with the visualization grid via {@link Grid#addTypeListener(Grid.TypeListener)},
+	 * so a search doesn't have to copy the grid. The version is increased with every change.
+	 * 
+	 * The listener only queues the changed cells, the thread which runs the next search applies them to the A* grid before it starts,
+	 * see {@link Search#run(SearchBudget)}. So the A* grid and its cells are only used by the thread which searches, as long as the
+	 * searches run one after another like those of {@link PathService}.
+	 * The changes are keyed by cell index and the latest change of a cell replaces the one before, so the queue can't grow beyond the
+	 * size of the grid, even if no search runs for a while.
+	 */
+	Grid syncedGrid = null;
+	AStarGrid<T> searchGrid = null;
+	long searchGridVersion;
+	Map<Integer,Change> searchGridChanges = null;
+	
+	Grid.TypeListener syncListener = cell -> {
+		searchGridChanges.put( cell.getRow() * syncedGrid.getColumns() + cell.getColumn(), new Change( cell.getColumn(), cell.getRow(), cell.isTraversable(), cell.getCost()));
+		searchGridVersion++;
+		
+		if( incrementalAlg != null) {
+			incrementalChanges.add( cell);
+		}
+		
+		if( pathCache != null) {
+			cacheChanges.add( cell);
+		}
+	};
+	
 	/**
 	 * Wrap visualization grid into A* grid, apply A* algorithm, unwrap cells.
 	 */
 	public List<T> findPath( Grid grid, T start, T goal, boolean allowDiagonals) {
 		
 		// convert visual grid to A* grid
-		marshal(grid, start, goal, allowDiagonals);
+		Search<T> search = marshal(grid, start, goal, allowDiagonals, alg);
+		
+		search.run( budget);
+		
+		return apply( search);
+	}
+	
+	/**
+	 * First part of {@link #findPath(Grid, Cell, Cell, boolean)} which has to run on the JavaFX Application Thread:
+	 * create a search on the A* grid which is kept in sync with the visualization grid.
+	 * The search can then run on any thread, see {@link Search#run(SearchBudget)}, and its result is shown via {@link #apply(Search)}.
+	 * The searches must run one after another. Cells which change after the search has been prepared may or may not be seen by it;
+	 * the search for the changed grid supersedes it anyway.
+	 * The prepared searches share one engine until one of them is applied, so a search must not run anymore once a later one has been applied;
+	 * {@link PathService} skips the superseded searches.
+	 */
+	public Search<T> prepare( Grid grid, T start, T goal, boolean allowDiagonals) {
+		return marshal( grid, start, goal, allowDiagonals, spareAlg);
+	}
+	
+	/**
+	 * Last part of {@link #findPath(Grid, Cell, Cell, boolean)} which has to run on the JavaFX Application Thread:
+	 * take over the search, so that its steps can be shown, and unwrap the path cells.
+	 */
+	public List<T> apply( Search<T> search) {
+		
+		if( search.alg != alg) {
+			spareAlg = alg;
+			alg = search.alg;
+		}
+		
+		g = search.grid;
+		s = search.start;
+		e = search.goal;
+		
+		result = search.result;
+		
+		status = result.getStatus();
+		calcTime = search.time;
+		
+		step = null;
+		stepIndex = -1;
+		
+		// convert A* path cells to visual cells; if the budget ran out, that's the path to the cell closest to the goal
+		path = unmarshal( search);
+		
+		return path;
+	}
+	
+	/**
+	 * Type change of a cell, queued on the JavaFX Application Thread and applied to the A* grid by the thread which searches.
+	 * It carries the whole state of the cell, so only the latest change of a cell has to be applied.
+	 */
+	static class Change {
+		
+		int col;
+		int row;
+		boolean isTraversable;
+		float cost;
+		
+		Change( int col, int row, boolean isTraversable, float cost) {
+			this.col = col;
+			this.row = row;
+			this.isTraversable = isTraversable;
+			this.cost = cost;
+		}
+	}
+	
+	/**
+	 * A* search on the A* grid of the wrapper. Created by {@link #prepare(Grid, Cell, Cell, boolean)}.
+	 */
+	public static class Search<T extends Cell> {
+		
+		AStarAlgorithm alg;
+		
+		AStarGrid<T> grid;
+		Map<Integer,Change> changes;
+		AStarCell<T> start;
+		AStarCell<T> goal;
+		boolean allowDiagonals;
+		
+		/**
+		 * Version of the A* grid when the search was prepared. Two searches with the same grid and version have the same terrain.
+		 */
+		long gridVersion;
+		
+		SearchResult result;
+		
+		/**
+		 * f,g,h values of the path cells, taken from the cells by the thread which searched, before the next search changes them.
+		 */
+		double[] pathF;
+		double[] pathG;
+		double[] pathH;
+		
+		/**
+		 * Time in nanoseconds which the algorithm needed.
+		 */
+		long time;
+		
+		Search( AStarAlgorithm alg, AStarGrid<T> grid, Map<Integer,Change> changes, long gridVersion, AStarCell<T> start, AStarCell<T> goal, boolean allowDiagonals) {
+			this.alg = alg;
+			this.grid = grid;
+			this.changes = changes;
+			this.gridVersion = gridVersion;
+			this.start = start;
+			this.goal = goal;
+			this.allowDiagonals = allowDiagonals;
+		}
+		
+		/**
+		 * Apply the queued changes of the A* grid, then run the A* algorithm. May be called on any thread, but only once,
+		 * and not while another search of the wrapper runs.
+		 */
+		public SearchResult run( SearchBudget budget) {
+			
+			// a change which is queued meanwhile is applied now or by the next search
+			for( Integer index: changes.keySet()) {
+				Change change = changes.remove( index);
+				if( change != null) {
+					grid.update( change.col, change.row, change.isTraversable, change.cost);
+				}
+			}
+			
+			// stopwatch
+			long startTime = System.nanoTime();
+			
+			result = alg.search( grid, start, goal, allowDiagonals, budget);
+			
+			time = System.nanoTime() - startTime;
+			
+			int[] indices = result.getPath();
+			
+			pathF = new double[ indices.length];
+			pathG = new double[ indices.length];
+			pathH = new double[ indices.length];
+			
+			for( int i = 0; i < indices.length; i++) {
+				AStarCell<T> cell = grid.getCell( indices[i]);
+				pathF[i] = cell.getF();
+				pathG[i] = cell.getG();
+				pathH[i] = cell.getH();
+			}
+			
+			return result;
+		}
+		
+		public SearchResult getResult() {
+			return result;
+		}
+		
+		public long getTime() {
+			return time;
+		}
+		
+		public int getStartColumn() {
+			return start.getObject().getColumn();
+		}
+		
+		public int getStartRow() {
+			return start.getObject().getRow();
+		}
+		
+		public int getGoalColumn() {
+			return goal.getObject().getColumn();
+		}
+		
+		public int getGoalRow() {
+			return goal.getObject().getRow();
+		}
+		
+		public boolean isAllowDiagonals() {
+			return allowDiagonals;
+		}
+		
+		/**
+		 * True if the other search has the same terrain, i. e. if it has been prepared from an unchanged grid.
+		 */
+		public boolean hasSameTerrain( Search<?> other) {
+			return grid == other.grid && gridVersion == other.gridVersion;
+		}
+	}
+	
+	/**
+	 * Alternative to {@link #findPath(Grid, Cell, Cell, boolean)} which keeps the search state between calls.
+	 * Only the cells whose type changed since the last call are passed to the planner, which then repairs its previous search.
+	 * No snapshots of the steps are recorded.
+	 */
+	public List<T> findPathIncremental( Grid grid, T start, T goal, boolean allowDiagonals) {
+		
+		if( grid != syncedGrid) {
+			sync( grid);
+		}
+		
+		if( incrementalAlg == null || incrementalGrid != grid || incrementalDiagonals != allowDiagonals) {
+			
+			// new planner for a new grid or neighbor mode
+			packedGrid = new PackedGrid( grid.getColumns(), grid.getRows());
+			
+			for( int row=0; row < grid.getRows(); row++) {
+				for( int col=0; col < grid.getColumns(); col++) {
+					packedGrid.setTraversable( col, row, grid.getCell(col, row).isTraversable());
+				}
+			}
+			
+			incrementalAlg = new DStarLiteAlgorithm( packedGrid, allowDiagonals);
+			incrementalGrid = grid;
+			incrementalDiagonals = allowDiagonals;
+			
+		} else {
+			
+			// pass the changed cells to the planner
+			for( Cell cell: incrementalChanges) {
+				if( packedGrid.isTraversable( packedGrid.index( cell.getColumn(), cell.getRow())) != cell.isTraversable()) {
+					incrementalAlg.setTraversable( cell.getColumn(), cell.getRow(), cell.isTraversable());
+				}
+			}
+		}
+		
+		incrementalChanges.clear();
+		
+		// stopwatch
+		long time = System.nanoTime();
+		
+		int[] indices = incrementalAlg.findPath( packedGrid.index( start.getColumn(), start.getRow()), packedGrid.index( goal.getColumn(), goal.getRow()));
+		
+		calcTime = System.nanoTime() - time;
+		
+		// convert path cell indices to visual cells
+		path = unmarshal( indices, packedGrid, allowDiagonals);
+		
+		return path;
+	}
+	
+	/**
+	 * Alternative to {@link #findPath(Grid, Cell, Cell, boolean)} which returns the path of a previous call as long as
+	 * no cell in its region has changed type since then. The paths include the terrain cost weights. No snapshots of the steps are recorded.
+	 */
+	public List<T> findPathCached( Grid grid, T start, T goal, boolean allowDiagonals) {
+		
+		if( grid != syncedGrid) {
+			sync( grid);
+		}
+		
+		if( pathCache == null || pathCacheGrid != grid) {
+			
+			// new cache for a new grid, with the terrain cost weights
+			cachedGrid = new PackedGrid( grid.getColumns(), grid.getRows());
+			
+			for( int row=0; row < grid.getRows(); row++) {
+				for( int col=0; col < grid.getColumns(); col++) {
+					
+					Cell cell = grid.getCell(col, row);
+					
+					cachedGrid.setTraversable( col, row, cell.isTraversable());
+					
+					if( cell.isTraversable()) {
+						cachedGrid.setCost( col, row, cell.getCost());
+					}
+				}
+			}
+			
+			pathCache = new PathCache( new TerrainAStarAlgorithm(), cachedGrid, CACHE_CAPACITY);
+			pathCacheGrid = grid;
+			
+		} else {
+			
+			// pass the changed cells to the cache, it drops the affected paths
+			for( Cell cell: cacheChanges) {
+				
+				if( cell.isTraversable()) {
+					pathCache.setCost( cell.getColumn(), cell.getRow(), cell.getCost());
+				}
+				
+				pathCache.setTraversable( cell.getColumn(), cell.getRow(), cell.isTraversable());
+			}
+		}
+		
+		cacheChanges.clear();
 		
 		// stopwatch
 		long time = System.nanoTime();
 		
-		List<AStarCell> aStarPath = alg.getPath(g, s, e, allowDiagonals);
+		int[] indices = pathCache.findPath( cachedGrid.index( start.getColumn(), start.getRow()), cachedGrid.index( goal.getColumn(), goal.getRow()), allowDiagonals);
 		
-		// show time needed for the algorithm
-		System.out.println( "Calc Time: " + (System.nanoTime() - time) / 1_000_000d + " ms");
+		// the time of the lookup or the algorithm, the hits, misses and evictions are counted by the cache, see getPathCache()
+		calcTime = System.nanoTime() - time;
 		
-		// convert A* path cells to visual cells
-		path = unmarshal( aStarPath);
+		// convert path cell indices to visual cells
+		path = unmarshal( indices, cachedGrid, allowDiagonals);
 		
 		return path;
 	}
 	
 	/**
-	 * Wrap visualization grid into A* grid. 
+	 * Create a search on the A* grid of the visualization grid. The A* grid is only built when the visualization grid is new,
+	 * after that it is updated per changed cell, so the cost of a search doesn't depend on the size of the grid.
 	 */
-	private void marshal( Grid grid, T start, T goal, boolean allowDiagonals) {
+	private Search<T> marshal( Grid grid, T start, T goal, boolean allowDiagonals, AStarAlgorithm alg) {
 		
-		g = new AStarGrid<T>( grid.getColumns(),grid.getRows());
+		if( grid != syncedGrid) {
+			sync( grid);
+		}
+		
+		return new Search<T>( alg, searchGrid, searchGridChanges, searchGridVersion, searchGrid.getCell( start.getColumn(), start.getRow()), searchGrid.getCell( goal.getColumn(), goal.getRow()), allowDiagonals);
+	}
+	
+	/**
+	 * Wrap visualization grid into A* grid, including the terrain cost weights of the cells, and keep it in sync.
+	 */
+	private void sync( Grid grid) {
+		
+		if( syncedGrid != null) {
+			syncedGrid.removeTypeListener( syncListener);
+		}
+		
+		searchGrid = new AStarGrid<T>( grid.getColumns(),grid.getRows());
 		
 		for( int row=0; row < grid.getRows(); row++) {
 			for( int col=0; col < grid.getColumns(); col++) {
 				
 				T cell = (T) grid.getCell(col, row);
 				
-				g.setCell( cell, col, row, cell.isTraversable());
-				
-				if( row == start.getRow() && col == start.getColumn()) {
-					s = g.getCell(col, row);
-				}
-				if( row == goal.getRow() && col == goal.getColumn()) {
-					e = g.getCell(col, row);
-				}
-				
+				searchGrid.setCell( cell, col, row, cell.isTraversable(), cell.getCost());
 			}
 		}
+		
+		syncedGrid = grid;
+		searchGridVersion++;
+		searchGridChanges = new ConcurrentHashMap<>();
+		
+		grid.addTypeListener( syncListener);
 	}
 	
 	/**
-	 * Unwrap A* cells into visualization cells. 
-	 * @param path
-	 * @return
+	 * Unwrap the path cells of a search into visualization cells, with the f,g,h values which the search has taken from them.
 	 */
-	private List<T> unmarshal( Collection<AStarCell> path) {
+	private List<T> unmarshal( Search<T> search) {
 
 		NumberFormat nf = NumberFormat.getInstance();
 		nf.setMaximumFractionDigits(1);
 		
+		int[] indices = search.result.getPath();
+		
 		List<T> list = new ArrayList<>();
-		for( AStarCell c: path) {
-			T obj = (T) c.getObject();
-			obj.setTextF( nf.format( c.getF()));
-			obj.setTextG( nf.format( c.getG()));
-			obj.setTextH( nf.format( c.getH()));
+		for( int i = 0; i < indices.length; i++) {
+			T obj = search.grid.getCell( indices[i]).getObject();
+			obj.setTextF( nf.format( search.pathF[i]));
+			obj.setTextG( nf.format( search.pathG[i]));
+			obj.setTextH( nf.format( search.pathH[i]));
 			list.add( obj);
 		}
 
 		return list;
 	}
 	
+	/**
+	 * Convert cell indices of a path (from goal to start) into visualization cells, via the A* grid of the synced grid.
+	 * The f,g,h values are the ones of the search on the given grid: g accumulates the octile step lengths times the mean cost weight
+	 * from the start, h is the heuristic of the neighbor mode to the goal times the lowest cost weight.
+	 */
+	private List<T> unmarshal( int[] indices, PackedGrid packedGrid, boolean allowDiagonals) {
+		
+		Heuristic heuristic = Heuristic.forConnectivity( allowDiagonals);
+		
+		NumberFormat nf = NumberFormat.getInstance();
+		nf.setMaximumFractionDigits(1);
+		
+		List<T> list = new ArrayList<>();
+		for( int index: indices) {
+			list.add( searchGrid.getCell( index).getObject());
+		}
+		
+		T goal = list.isEmpty() ? null : list.get( 0);
+		T previous = null;
+		double g = 0;
+		
+		for( int i = list.size() - 1; i >= 0; i--) {
+			
+			T cell = list.get( i);
+			
+			if( previous != null) {
+				g += stepLength( previous, cell) * (getCost( packedGrid, previous) + getCost( packedGrid, cell)) / 2d;
+			}
+			double h = heuristic.estimate( Math.abs( cell.getColumn() - goal.getColumn()), Math.abs( cell.getRow() - goal.getRow())) * packedGrid.getMinCost();
+			
+			cell.setTextF( nf.format( g + h));
+			cell.setTextG( nf.format( g));
+			cell.setTextH( nf.format( h));
+			
+			previous = cell;
+		}
+		
+		return list;
+	}
+	
+	/**
+	 * Length of a step between neighbors, see {@link StepCost#forConnectivity(boolean)}.
+	 */
+	private float stepLength( T from, T to) {
+		return from.getColumn() != to.getColumn() && from.getRow() != to.getRow() ? StepCost.SQRT2 : 1f;
+	}
+	
+	private float getCost( PackedGrid packedGrid, T cell) {
+		return packedGrid.getCost( packedGrid.index( cell.getColumn(), cell.getRow()));
+	}
+	
 	public List<T> getOpenSnapshot( int index) {
 		
-		return unmarshal( alg.getSnapshots().get(index).getOpenset());
+		StepLog.Step step = getStep( index);
+		
+		return unmarshal( step, step.getOpenCells());
 		
 	}
 	public List<T> getClosedSnapshot( int index) {
 		
-		return unmarshal( alg.getSnapshots().get(index).getClosedset());
+		StepLog.Step step = getStep( index);
+		
+		return unmarshal( step, step.getClosedCells());
+		
+	}
+	
+	/**
+	 * Move the cursor of the step log of the algorithm to the given step.
+	 */
+	private StepLog.Step getStep( int index) {
+		
+		if( index != stepIndex) {
+			step = alg.getStepLog().getStep( index);
+			stepIndex = index;
+		}
+		
+		return step;
+	}
+	
+	/**
+	 * Convert cell indices of a step into visualization cells with the f,g,h values of the step.
+	 */
+	private List<T> unmarshal( StepLog.Step step, int[] indices) {
+		
+		NumberFormat nf = NumberFormat.getInstance();
+		nf.setMaximumFractionDigits(1);
+		
+		List<T> list = new ArrayList<>();
+		for( int index: indices) {
+			T obj = g.getCell( index).getObject();
+			obj.setTextF( nf.format( step.getF( index)));
+			obj.setTextG( nf.format( step.getG( index)));
+			obj.setTextH( nf.format( step.getH( index)));
+			list.add( obj);
+		}
 		
+		return list;
+	}
+	
+	/**
+	 * Cache of {@link #findPathCached(Grid, Cell, Cell, boolean)} with its hit, miss and eviction counters, null before the first call.
+	 */
+	public PathCache getPathCache() {
+		return pathCache;
+	}
+	
+	public SearchBudget getBudget() {
+		return budget;
+	}
+	
+	/**
+	 * Set the limits of {@link #findPath(Grid, Cell, Cell, boolean)}. If they are reached, the path ends at the cell closest to the goal.
+	 */
+	public void setBudget( SearchBudget budget) {
+		this.budget = budget;
+	}
+	
+	/**
+	 * How the last call of {@link #findPath(Grid, Cell, Cell, boolean)} ended, null before the first call.
+	 */
+	public SearchResult.Status getStatus() {
+		return status;
+	}
+	
+	/**
+	 * Result of the last call of {@link #findPath(Grid, Cell, Cell, boolean)} or {@link #apply(Search)}: status, expanded and generated cells,
+	 * open set peak, heuristic evaluations, cost and time of the search. Null before the first call.
+	 */
+	public SearchResult getResult() {
+		return result;
+	}
+	
+	/**
+	 * Time in nanoseconds which the algorithm needed in the last call of {@link #findPath(Grid, Cell, Cell, boolean)}, {@link #apply(Search)},
+	 * {@link #findPathIncremental(Grid, Cell, Cell, boolean)} or {@link #findPathCached(Grid, Cell, Cell, boolean)}.
+	 */
+	public long getCalcTime() {
+		return calcTime;
 	}
 	
 	public List<T> getPath() {
@@ -106,7 +621,7 @@ public class Wrapper<T extends Cell> {
 	}
 	
 	public int getSnapshotCount() {
-		return alg.getSnapshots().size();
+		return alg.getStepLog().getStepCount();
 	}
 	
 }
@@ -2,7 +2,9 @@ package application.input;
 
 import javafx.event.EventHandler;
 import javafx.scene.Node;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import application.grid.CanvasGrid;
 import application.grid.Grid;
 import application.grid.Cell;
 import application.utils.Utils;
@@ -26,6 +28,64 @@ public class MouseDragGestures {
 	public MouseDragGestures( Grid grid) {
 		this.grid = grid;
 	}
+
+	/**
+	 * Move the start and the goal of a canvas grid by dragging them. Pressing on them doesn't paint.
+	 */
+	public void makeDraggable( CanvasGrid canvasGrid) {
+
+		// 0 = nothing, 1 = start, 2 = goal
+		int[] dragged = new int[1];
+
+		canvasGrid.addEventFilter(MouseEvent.MOUSE_PRESSED, event -> {
+
+			dragged[0] = 0;
+
+			if( event.getButton() != MouseButton.PRIMARY) {
+				return;
+			}
+
+			int column = canvasGrid.getColumn( event.getX());
+			int row = canvasGrid.getRow( event.getY());
+
+			if( column == canvasGrid.getStartColumn() && row == canvasGrid.getStartRow()) {
+				dragged[0] = 1;
+			} else if( column == canvasGrid.getGoalColumn() && row == canvasGrid.getGoalRow()) {
+				dragged[0] = 2;
+			} else {
+				return;
+			}
+
+			event.consume();
+		});
+
+		canvasGrid.addEventFilter(MouseEvent.MOUSE_DRAGGED, event -> {
+
+			if( dragged[0] == 0) {
+				return;
+			}
+
+			int column = canvasGrid.getColumn( event.getX());
+			int row = canvasGrid.getRow( event.getY());
+
+			// keep the last cell while the mouse is outside of the grid
+			if( column == -1 || row == -1) {
+				event.consume();
+				return;
+			}
+
+			if( dragged[0] == 1) {
+				canvasGrid.setStart( column, row);
+			} else {
+				canvasGrid.setGoal( column, row);
+			}
+
+			event.consume();
+		});
+
+		// the release isn't consumed, main has a released filter which draws the path
+		canvasGrid.addEventFilter(MouseEvent.MOUSE_RELEASED, event -> dragged[0] = 0);
+	}
 	
 	public void makeDraggable( Node node) {
 		// using event filter here instead of setOnMouse... because we need a proper order of the filter handling; 
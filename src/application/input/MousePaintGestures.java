@@ -3,22 +3,122 @@ package application.input;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
 import javafx.scene.input.MouseEvent;
+import application.grid.CanvasGrid;
 import application.grid.Cell;
 import application.grid.CellType;
 
 /**
  * Change the cell type in the cells while you keep the button pressed.
- * Primary button: add blocks
- * Secondary button: remove blocks
+ * Primary button: paint the selected type, obstacles by default
+ * Secondary button: remove blocks and terrain
  */
 public class MousePaintGestures {
 
+	/**
+	 * Type which is painted with the primary button.
+	 */
+	CellType paintType = CellType.OBSTACLE;
+
+	public CellType getPaintType() {
+		return paintType;
+	}
+
+	public void setPaintType( CellType paintType) {
+		this.paintType = paintType;
+	}
+
 	public void makePaintable( Node node) {
 		node.setOnMousePressed( onMousePressedEventHandler);
 		node.setOnDragDetected( onDragDetectedEventHandler);
 		node.setOnMouseDragEntered(onMouseDragEnteredEventHandler);
 	}
 	
+	/**
+	 * Paint on a canvas grid. The cells between two mouse events are painted as well, so fast strokes have no gaps.
+	 * The start and the goal aren't painted, they must stay traversable.
+	 */
+	public void makePaintable( CanvasGrid grid) {
+
+		int[] last = new int[2];
+
+		grid.addEventHandler( MouseEvent.MOUSE_PRESSED, event -> {
+
+			int column = grid.getColumn( event.getX());
+			int row = grid.getRow( event.getY());
+
+			CellType type = getType( event);
+
+			if( type == null || column == -1 || row == -1) {
+				return;
+			}
+
+			// change existing path highlight
+			grid.removeHighlight();
+
+			if( !isStartOrGoal( grid, column, row)) {
+				grid.setType( column, row, type);
+			}
+
+			last[0] = column;
+			last[1] = row;
+		});
+
+		grid.addEventHandler( MouseEvent.MOUSE_DRAGGED, event -> {
+
+			int column = grid.getColumn( event.getX());
+			int row = grid.getRow( event.getY());
+
+			CellType type = getType( event);
+
+			if( type == null || column == -1 || row == -1) {
+				return;
+			}
+
+			paintLine( grid, last[0], last[1], column, row, type);
+
+			last[0] = column;
+			last[1] = row;
+		});
+	}
+
+	/**
+	 * Bresenham line between two cells.
+	 */
+	private void paintLine( CanvasGrid grid, int column, int row, int toColumn, int toRow, CellType type) {
+
+		int dx = Math.abs( toColumn - column);
+		int dy = -Math.abs( toRow - row);
+		int stepX = column < toColumn ? 1 : -1;
+		int stepY = row < toRow ? 1 : -1;
+		int error = dx + dy;
+
+		while( true) {
+
+			if( !isStartOrGoal( grid, column, row)) {
+				grid.setType( column, row, type);
+			}
+
+			if( column == toColumn && row == toRow) {
+				return;
+			}
+
+			int error2 = 2 * error;
+
+			if( error2 >= dy) {
+				error += dy;
+				column += stepX;
+			}
+			if( error2 <= dx) {
+				error += dx;
+				row += stepY;
+			}
+		}
+	}
+
+	private boolean isStartOrGoal( CanvasGrid grid, int column, int row) {
+		return (column == grid.getStartColumn() && row == grid.getStartRow()) || (column == grid.getGoalColumn() && row == grid.getGoalRow());
+	}
+
 	EventHandler<MouseEvent> onMousePressedEventHandler = new EventHandler<MouseEvent>() {
 
 		@Override
@@ -46,12 +146,8 @@ public class MousePaintGestures {
 	
 	private void setType( MouseEvent event) {
 
-		CellType type = null;
-		if( event.isPrimaryButtonDown()) {
-			type = CellType.OBSTACLE;
-		} else if( event.isSecondaryButtonDown()) {
-			type = CellType.TRAVERSABLE;
-		} else {
+		CellType type = getType( event);
+		if( type == null) {
 			// no action on unhandled mouse buttons
 			return;
 		}
@@ -64,4 +160,18 @@ public class MousePaintGestures {
 
 	}
 
+	/**
+	 * Type which is painted with the pressed button, null for other buttons.
+	 */
+	private CellType getType( MouseEvent event) {
+
+		if( event.isPrimaryButtonDown()) {
+			return paintType;
+		} else if( event.isSecondaryButtonDown()) {
+			return CellType.TRAVERSABLE;
+		}
+
+		return null;
+	}
+
 }
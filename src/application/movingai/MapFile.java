@@ -0,0 +1,72 @@
+package application.movingai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import application.astar.PackedGrid;
+
+/**
+ * Reader for the map files of the Moving AI grid benchmarks, see https://movingai.com/benchmarks/formats.html
+ *
+ * The header (type, height, width) is followed by "map" and one line of characters per row.
+ * '.', 'G' and 'S' are traversable, every other character ('@', 'O', 'T', 'W') is an obstacle.
+ * Water is only traversable from water in the original rules, which a {@link PackedGrid} can't express; the octile benchmark sets
+ * this is meant for don't depend on it.
+ */
+public class MapFile {
+
+	/**
+	 * Read a map file line by line into a grid.
+	 */
+	public static PackedGrid read( Path file) throws IOException {
+
+		try( BufferedReader reader = Files.newBufferedReader( file, StandardCharsets.US_ASCII)) {
+
+			int width = -1;
+			int height = -1;
+
+			String line;
+
+			while( (line = reader.readLine()) != null && !line.trim().equals( "map")) {
+
+				String[] fields = line.trim().split( "\\s+");
+
+				if( fields[0].equals( "height")) {
+					height = Integer.parseInt( fields[1]);
+				} else if( fields[0].equals( "width")) {
+					width = Integer.parseInt( fields[1]);
+				}
+			}
+
+			if( line == null || width <= 0 || height <= 0) {
+				throw new IOException( "Invalid map header: " + file);
+			}
+
+			PackedGrid grid = new PackedGrid( width, height);
+
+			for( int row = 0; row < height; row++) {
+
+				line = reader.readLine();
+
+				if( line == null || line.length() < width) {
+					throw new IOException( "Row " + row + " is missing or too short: " + file);
+				}
+
+				for( int col = 0; col < width; col++) {
+					if( isTraversable( line.charAt( col))) {
+						grid.setTraversable( col, row, true);
+					}
+				}
+			}
+
+			return grid;
+		}
+	}
+
+	static boolean isTraversable( char c) {
+		return c == '.' || c == 'G' || c == 'S';
+	}
+}
@@ -0,0 +1,100 @@
+package application.movingai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * One line of a Moving AI scenario file: bucket, map, map size, start, goal and the optimal path length.
+ * The optimal length is octile (straight steps 1, diagonal steps sqrt(2)) without corner cutting.
+ */
+public class Scenario {
+
+	int bucket;
+	String map;
+	int width;
+	int height;
+	int startX;
+	int startY;
+	int goalX;
+	int goalY;
+	double optimal;
+
+	/**
+	 * Stream the scenarios of a file. The lines are read while the stream is consumed, so it has to be closed.
+	 */
+	public static Stream<Scenario> read( Path file) throws IOException {
+		return Files.lines( file, StandardCharsets.US_ASCII)
+				.filter( line -> !line.trim().isEmpty() && !line.startsWith( "version"))
+				.map( Scenario::parse);
+	}
+
+	/**
+	 * Parse a tab separated scenario line.
+	 */
+	static Scenario parse( String line) {
+
+		String[] fields = line.trim().split( "\t");
+
+		if( fields.length < 9) {
+			throw new UncheckedIOException( new IOException( "Invalid scenario line: " + line));
+		}
+
+		Scenario scenario = new Scenario();
+
+		try {
+			scenario.bucket = Integer.parseInt( fields[0].trim());
+			scenario.map = fields[1].trim();
+			scenario.width = Integer.parseInt( fields[2].trim());
+			scenario.height = Integer.parseInt( fields[3].trim());
+			scenario.startX = Integer.parseInt( fields[4].trim());
+			scenario.startY = Integer.parseInt( fields[5].trim());
+			scenario.goalX = Integer.parseInt( fields[6].trim());
+			scenario.goalY = Integer.parseInt( fields[7].trim());
+			scenario.optimal = Double.parseDouble( fields[8].trim());
+		} catch( NumberFormatException e) {
+			throw new UncheckedIOException( new IOException( "Invalid scenario line: " + line, e));
+		}
+
+		return scenario;
+	}
+
+	public int getBucket() {
+		return bucket;
+	}
+
+	public String getMap() {
+		return map;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getStartX() {
+		return startX;
+	}
+
+	public int getStartY() {
+		return startY;
+	}
+
+	public int getGoalX() {
+		return goalX;
+	}
+
+	public int getGoalY() {
+		return goalY;
+	}
+
+	public double getOptimal() {
+		return optimal;
+	}
+}
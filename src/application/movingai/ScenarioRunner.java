@@ -0,0 +1,358 @@
+package application.movingai;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import application.astar.AnytimeAStarAlgorithm;
+import application.astar.BidirectionalAStarAlgorithm;
+import application.astar.BucketAStarAlgorithm;
+import application.astar.HierarchicalPathFinder;
+import application.astar.JumpPointSearchAlgorithm;
+import application.astar.NeighborMask;
+import application.astar.PackedGrid;
+import application.astar.PathFinder;
+import application.astar.PrimitiveAStarAlgorithm;
+import application.astar.SearchBudget;
+import application.astar.SearchContext;
+import application.astar.SearchResult;
+import application.astar.TerrainAStarAlgorithm;
+
+/**
+ * Headless runner for Moving AI scenario files. Runs every scenario through an engine, checks the path against the optimal length
+ * and writes latency percentiles and expansion counts per bucket to a CSV file.
+ *
+ * Usage: ScenarioRunner [-engine name] [-maps folder] [-out file] [-warmup n] scenario-file...
+ *
+ * -engine: primitive (default), terrain, bucket, bidirectional, jps, hpa or anytime
+ * -maps: folder of the map files, by default the folder of the scenario file
+ * -out: CSV file, by default scenarios.csv
+ * -warmup: number of unmeasured runs over all scenarios before the measured one, by default 1
+ *
+ * A path is invalid if it doesn't connect start and goal with moves of the grid or is shorter than the optimum,
+ * suboptimal if it is longer. The exit status is 1 if a path is missing or invalid.
+ * The expansions are 0 for engines which don't count them, see {@link PathFinder#search(application.astar.SearchGrid, SearchContext, int, int, boolean, SearchBudget)}.
+ */
+public class ScenarioRunner {
+
+	static final double SQRT2 = Math.sqrt( 2);
+
+	/**
+	 * Relative difference from the optimal length which counts as equal. The optimal lengths are given with 8 decimals,
+	 * the engines add float step costs.
+	 */
+	static final double TOLERANCE = 1e-4;
+
+	/**
+	 * Cluster size of the hierarchical engine.
+	 */
+	static final int CLUSTER_SIZE = 16;
+
+	String engine = "primitive";
+	Path mapFolder = null;
+	Path out = Paths.get( "scenarios.csv");
+	int warmup = 1;
+
+	SearchContext context = new SearchContext( 0);
+
+	/**
+	 * Map of the last scenario and the engine for it; scenario files are sorted by map, so it rarely changes.
+	 */
+	Path currentMapFile = null;
+	PackedGrid grid = null;
+	PathFinder pathFinder = null;
+
+	/**
+	 * Statistics per bucket of the measured run.
+	 */
+	Map<Integer, BucketStats> buckets;
+
+	boolean isMeasured;
+
+	public static void main( String[] args) throws IOException {
+
+		ScenarioRunner runner = new ScenarioRunner();
+
+		int i = 0;
+
+		for( ; i < args.length && args[i].startsWith( "-"); i += 2) {
+
+			if( i + 1 >= args.length) {
+				usage();
+			}
+
+			switch( args[i]) {
+			case "-engine":
+				runner.engine = args[i + 1];
+				break;
+			case "-maps":
+				runner.mapFolder = Paths.get( args[i + 1]);
+				break;
+			case "-out":
+				runner.out = Paths.get( args[i + 1]);
+				break;
+			case "-warmup":
+				runner.warmup = Integer.parseInt( args[i + 1]);
+				break;
+			default:
+				usage();
+			}
+		}
+
+		if( i == args.length) {
+			usage();
+		}
+
+		boolean isValid = true;
+
+		try( PrintWriter writer = new PrintWriter( Files.newBufferedWriter( runner.out, StandardCharsets.US_ASCII))) {
+
+			writer.println( "file,bucket,scenarios,found,invalid,suboptimal,max_error,mean_us,p50_us,p90_us,p99_us,max_us,mean_expansions,max_expansions");
+
+			for( ; i < args.length; i++) {
+
+				Path scenarioFile = Paths.get( args[i]);
+
+				for( int run = 0; run < runner.warmup; run++) {
+					runner.run( scenarioFile, false);
+				}
+
+				runner.run( scenarioFile, true);
+
+				isValid &= runner.write( writer, scenarioFile);
+			}
+		}
+
+		System.exit( isValid ? 0 : 1);
+	}
+
+	private static void usage() {
+		System.err.println( "Usage: ScenarioRunner [-engine primitive|terrain|bucket|bidirectional|jps|hpa|anytime] [-maps folder] [-out file] [-warmup n] scenario-file...");
+		System.exit( 2);
+	}
+
+	/**
+	 * Run all scenarios of a file, the statistics are only collected if the run is measured.
+	 */
+	void run( Path scenarioFile, boolean isMeasured) throws IOException {
+
+		this.isMeasured = isMeasured;
+
+		buckets = new TreeMap<>();
+
+		Path folder = mapFolder != null ? mapFolder : scenarioFile.toAbsolutePath().getParent();
+
+		try( Stream<Scenario> scenarios = Scenario.read( scenarioFile)) {
+
+			for( Scenario scenario: (Iterable<Scenario>) scenarios::iterator) {
+				run( scenario, folder);
+			}
+		}
+	}
+
+	private void run( Scenario scenario, Path folder) throws IOException {
+
+		Path mapFile = resolveMap( folder, scenario.getMap());
+
+		if( !mapFile.equals( currentMapFile)) {
+
+			grid = MapFile.read( mapFile);
+			pathFinder = createPathFinder( engine, grid);
+			currentMapFile = mapFile;
+		}
+
+		if( grid.getCols() != scenario.getWidth() || grid.getRows() != scenario.getHeight()) {
+			throw new IOException( "Map size differs from the scenario: " + mapFile);
+		}
+
+		int start = grid.index( scenario.getStartX(), scenario.getStartY());
+		int goal = grid.index( scenario.getGoalX(), scenario.getGoalY());
+
+		long startTime = System.nanoTime();
+
+		SearchResult result = pathFinder.search( grid, context, start, goal, true, SearchBudget.UNLIMITED);
+
+		long time = System.nanoTime() - startTime;
+
+		if( !isMeasured) {
+			return;
+		}
+
+		BucketStats stats = buckets.computeIfAbsent( scenario.getBucket(), bucket -> new BucketStats());
+
+		stats.add( time, result.getExpansions());
+
+		int[] path = result.getPath();
+
+		if( path.length == 0) {
+			return;
+		}
+
+		stats.found++;
+
+		double length = length( path, start, goal);
+		double error = (length - scenario.getOptimal()) / Math.max( 1d, scenario.getOptimal());
+
+		if( Double.isNaN( length) || error < -TOLERANCE) {
+			stats.invalid++;
+		} else if( error > TOLERANCE) {
+			stats.suboptimal++;
+			stats.maxError = Math.max( stats.maxError, error);
+		}
+	}
+
+	/**
+	 * Octile length of a path from goal to start, NaN if it doesn't connect start and goal with moves of the grid.
+	 */
+	private double length( int[] path, int start, int goal) {
+
+		if( path[0] != goal || path[ path.length - 1] != start) {
+			return Double.NaN;
+		}
+
+		double length = 0;
+
+		for( int i = 1; i < path.length; i++) {
+
+			int from = path[i];
+			int to = path[i - 1];
+
+			int direction = direction( grid.col( to) - grid.col( from), grid.row( to) - grid.row( from));
+
+			if( direction == -1 || (grid.getNeighborMask( from, true) & (1 << direction)) == 0) {
+				return Double.NaN;
+			}
+
+			length += NeighborMask.isDiagonal( direction) ? SQRT2 : 1d;
+		}
+
+		return length;
+	}
+
+	/**
+	 * {@link NeighborMask} direction of a step, -1 if the cells aren't neighbors.
+	 */
+	private static int direction( int dCol, int dRow) {
+
+		for( int direction = 0; direction < 8; direction++) {
+			if( NeighborMask.COLS[direction] == dCol && NeighborMask.ROWS[direction] == dRow) {
+				return direction;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * The map name of a scenario may contain a folder; if the map isn't found there, it is looked up by its file name.
+	 */
+	private static Path resolveMap( Path folder, String name) {
+
+		Path file = folder.resolve( name);
+
+		if( Files.exists( file)) {
+			return file;
+		}
+
+		return folder.resolve( Paths.get( name).getFileName());
+	}
+
+	static PathFinder createPathFinder( String engine, PackedGrid grid) {
+
+		switch( engine) {
+		case "primitive":
+			return new PrimitiveAStarAlgorithm();
+		case "terrain":
+			return new TerrainAStarAlgorithm();
+		case "bucket":
+			return new BucketAStarAlgorithm();
+		case "bidirectional":
+			return new BidirectionalAStarAlgorithm();
+		case "jps":
+			return new JumpPointSearchAlgorithm();
+		case "hpa":
+			return new HierarchicalPathFinder( grid, CLUSTER_SIZE, true);
+		case "anytime":
+			return new AnytimeAStarAlgorithm();
+		default:
+			throw new IllegalArgumentException( "Unknown engine: " + engine);
+		}
+	}
+
+	/**
+	 * Write the statistics of the measured run, one line per bucket, and a summary to the console.
+	 *
+	 * @return false if a path is missing or invalid
+	 */
+	boolean write( PrintWriter writer, Path scenarioFile) {
+
+		int scenarios = 0;
+		int missing = 0;
+		int invalid = 0;
+		int suboptimal = 0;
+
+		for( Map.Entry<Integer, BucketStats> entry: buckets.entrySet()) {
+
+			BucketStats stats = entry.getValue();
+
+			long[] times = Arrays.copyOf( stats.times, stats.count);
+			Arrays.sort( times);
+
+			writer.println( String.format( Locale.ROOT, "%s,%d,%d,%d,%d,%d,%.6f,%.3f,%.3f,%.3f,%.3f,%.3f,%.1f,%d",
+					scenarioFile.getFileName(), entry.getKey(), stats.count, stats.found, stats.invalid, stats.suboptimal, stats.maxError,
+					stats.totalTime / (double) stats.count / 1000d, percentile( times, 0.5) / 1000d, percentile( times, 0.9) / 1000d,
+					percentile( times, 0.99) / 1000d, times[ times.length - 1] / 1000d, stats.totalExpansions / (double) stats.count, stats.maxExpansions));
+
+			scenarios += stats.count;
+			missing += stats.count - stats.found;
+			invalid += stats.invalid;
+			suboptimal += stats.suboptimal;
+		}
+
+		System.out.println( scenarioFile.getFileName() + ": " + scenarios + " scenarios, " + missing + " without path, " + invalid + " invalid, " + suboptimal + " suboptimal (" + engine + ")");
+
+		return missing == 0 && invalid == 0;
+	}
+
+	/**
+	 * Nearest-rank percentile of sorted values.
+	 */
+	static long percentile( long[] sorted, double p) {
+		return sorted[ Math.max( 0, (int) Math.ceil( p * sorted.length) - 1)];
+	}
+
+	static class BucketStats {
+
+		long[] times = new long[ 16];
+		int count;
+
+		int found;
+		int invalid;
+		int suboptimal;
+		double maxError;
+
+		long totalTime;
+		long totalExpansions;
+		long maxExpansions;
+
+		void add( long time, long expansions) {
+
+			if( count == times.length) {
+				times = Arrays.copyOf( times, count * 2);
+			}
+			times[count++] = time;
+
+			totalTime += time;
+			totalExpansions += expansions;
+			maxExpansions = Math.max( maxExpansions, expansions);
+		}
+	}
+}